@@ -3,6 +3,7 @@ package config;
 import java.awt.Dimension;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Locale;
 import java.util.Properties;
 import java.util.logging.Logger;
 import java.util.logging.Level;
@@ -18,6 +19,30 @@ public class ConfigurationManager {
     private static final int DEFAULT_CONNECTION_TIMEOUT = 30000; // 30 segundos
     private static final int DEFAULT_READ_TIMEOUT = 15000; // 15 segundos
     private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final String DEFAULT_JOURNAL_DIRECTORY = "data/journal";
+    private static final int DEFAULT_JOURNAL_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final long DEFAULT_JOURNAL_FLUSH_INTERVAL = 200; // ms
+    private static final long DEFAULT_GROUP_COMMIT_WINDOW = 5; // ms
+    private static final int DEFAULT_GROUP_COMMIT_BATCH_SIZE = 256;
+    private static final long DEFAULT_SNAPSHOT_INTERVAL = 300000; // 5 minutos
+    private static final String DEFAULT_STATEMENTS_DIRECTORY = "data/statements";
+    public static final String THREADPOOL_MODE_PLATFORM = "platform";
+    public static final String THREADPOOL_MODE_VIRTUAL = "virtual";
+    private static final long DEFAULT_THREADPOOL_KEEPALIVE = 60000; // 1 minuto
+    public static final String LEDGER_MODE_LOCKS = "locks";
+    public static final String LEDGER_MODE_RING = "ringbuffer";
+    private static final int DEFAULT_LEDGER_RING_SIZE = 65536;
+    private static final int DEFAULT_IDEMPOTENCY_MAX_ENTRIES = 10000;
+    private static final long DEFAULT_IDEMPOTENCY_TTL = 600000; // 10 minutos
+    private static final int DEFAULT_ACCOUNT_CACHE_MAX_ENTRIES = 1000;
+    private static final long DEFAULT_ACCOUNT_CACHE_TTL = 30000; // 30 segundos
+    private static final int DEFAULT_CIRCUIT_BREAKER_WINDOW = 20;
+    private static final int DEFAULT_CIRCUIT_BREAKER_MIN_CALLS = 10;
+    private static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE = 50; // %
+    private static final int DEFAULT_CIRCUIT_BREAKER_SLOW_RATE = 80; // %
+    private static final long DEFAULT_CIRCUIT_BREAKER_SLOW_CALL = 5000; // ms
+    private static final long DEFAULT_CIRCUIT_BREAKER_OPEN = 10000; // ms
+    private static final int DEFAULT_CIRCUIT_BREAKER_HALF_OPEN_CALLS = 3;
     
     private ConfigurationManager() {
         loadConfiguration();
@@ -80,6 +105,85 @@ public class ConfigurationManager {
         properties.setProperty("security.session.timeout", "1800000"); // 30 minutos
         properties.setProperty("security.max.login.attempts", "3");
         properties.setProperty("security.lockout.duration", "300000"); // 5 minutos
+        // Claves de idempotencia de transferencias recordadas
+        properties.setProperty("idempotency.max.entries", 
+                String.valueOf(DEFAULT_IDEMPOTENCY_MAX_ENTRIES));
+        properties.setProperty("idempotency.ttl.ms", 
+                String.valueOf(DEFAULT_IDEMPOTENCY_TTL));
+        
+        // Nodo (0-1023) para los ids de transacción: único por instancia
+        properties.setProperty("node.id", "0");
+        
+        // Pool de hilos de los servicios: "platform" (pools fijos) o 
+        // "virtual" (un hilo virtual por tarea)
+        properties.setProperty("threadpool.mode", THREADPOOL_MODE_PLATFORM);
+        properties.setProperty("threadpool.keepalive.ms", 
+                String.valueOf(DEFAULT_THREADPOOL_KEEPALIVE));
+        // Compartimentos (bulkheads): hilos y cola de cada tipo de trabajo 
+        // (tamaño 0 = dos hilos por núcleo). En modo virtual, hilos + cola 
+        // es el máximo de tareas admitidas a la vez
+        properties.setProperty("threadpool.auth.size", "4");
+        properties.setProperty("threadpool.auth.queue.capacity", "100");
+        properties.setProperty("threadpool.transferencias.size", "0");
+        properties.setProperty("threadpool.transferencias.queue.capacity", 
+                "500");
+        properties.setProperty("threadpool.consultas.size", "0");
+        properties.setProperty("threadpool.consultas.queue.capacity", "500");
+        properties.setProperty("threadpool.lotes.size", "2");
+        properties.setProperty("threadpool.lotes.queue.capacity", "10");
+        // Volcado periódico de las estadísticas del pool (0 = deshabilitado)
+        properties.setProperty("threadpool.metrics.interval.ms", "0");
+        
+        // Caché de cuentas por usuario (se invalida con cada cambio)
+        properties.setProperty("accounts.cache.max.entries", 
+                String.valueOf(DEFAULT_ACCOUNT_CACHE_MAX_ENTRIES));
+        properties.setProperty("accounts.cache.ttl.ms", 
+                String.valueOf(DEFAULT_ACCOUNT_CACHE_TTL));
+        
+        // Cortocircuitos por operación: ventana de las últimas llamadas, 
+        // umbrales de fallos y de llamadas lentas (en %), duración de una 
+        // llamada lenta, tiempo abierto y llamadas de prueba en semiabierto
+        properties.setProperty("circuitbreaker.window.size", 
+                String.valueOf(DEFAULT_CIRCUIT_BREAKER_WINDOW));
+        properties.setProperty("circuitbreaker.minimum.calls", 
+                String.valueOf(DEFAULT_CIRCUIT_BREAKER_MIN_CALLS));
+        properties.setProperty("circuitbreaker.failure.rate", 
+                String.valueOf(DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE));
+        properties.setProperty("circuitbreaker.slow.call.rate", 
+                String.valueOf(DEFAULT_CIRCUIT_BREAKER_SLOW_RATE));
+        properties.setProperty("circuitbreaker.slow.call.ms", 
+                String.valueOf(DEFAULT_CIRCUIT_BREAKER_SLOW_CALL));
+        properties.setProperty("circuitbreaker.open.ms", 
+                String.valueOf(DEFAULT_CIRCUIT_BREAKER_OPEN));
+        properties.setProperty("circuitbreaker.half.open.calls", 
+                String.valueOf(DEFAULT_CIRCUIT_BREAKER_HALF_OPEN_CALLS));
+        
+        // Motor del libro mayor: "locks" (locks por franjas) o "ringbuffer" 
+        // (un único escritor; tamaño del anillo en potencia de dos)
+        properties.setProperty("ledger.mode", LEDGER_MODE_LOCKS);
+        properties.setProperty("ledger.ring.size", 
+                String.valueOf(DEFAULT_LEDGER_RING_SIZE));
+        
+        // Configuración de persistencia (diario de transacciones)
+        properties.setProperty("journal.enabled", "true");
+        properties.setProperty("journal.directory", DEFAULT_JOURNAL_DIRECTORY);
+        properties.setProperty("journal.segment.size", 
+                String.valueOf(DEFAULT_JOURNAL_SEGMENT_SIZE));
+        properties.setProperty("journal.flush.interval.ms", 
+                String.valueOf(DEFAULT_JOURNAL_FLUSH_INTERVAL));
+        // Group commit: más ventana/lote = más rendimiento y más latencia
+        properties.setProperty("journal.groupcommit.window.ms", 
+                String.valueOf(DEFAULT_GROUP_COMMIT_WINDOW));
+        properties.setProperty("journal.groupcommit.batch.size", 
+                String.valueOf(DEFAULT_GROUP_COMMIT_BATCH_SIZE));
+        // Instantáneas del libro mayor (0 = deshabilitadas)
+        properties.setProperty("snapshot.interval.ms", 
+                String.valueOf(DEFAULT_SNAPSHOT_INTERVAL));
+        
+        // Extractos mensuales (paralelismo 0 = un hilo por núcleo)
+        properties.setProperty("statements.directory", 
+                DEFAULT_STATEMENTS_DIRECTORY);
+        properties.setProperty("statements.parallelism", "0");
     }
     
 
@@ -87,8 +191,42 @@ public class ConfigurationManager {
         String[] overridableProperties = {
             "app.environment",
             "network.connection.timeout",
+            "network.read.timeout",
             "logging.level",
-            "security.session.timeout"
+            "security.session.timeout",
+            "idempotency.max.entries",
+            "idempotency.ttl.ms",
+            "node.id",
+            "threadpool.mode",
+            "threadpool.auth.size",
+            "threadpool.auth.queue.capacity",
+            "threadpool.transferencias.size",
+            "threadpool.transferencias.queue.capacity",
+            "threadpool.consultas.size",
+            "threadpool.consultas.queue.capacity",
+            "threadpool.lotes.size",
+            "threadpool.lotes.queue.capacity",
+            "threadpool.metrics.interval.ms",
+            "accounts.cache.max.entries",
+            "accounts.cache.ttl.ms",
+            "circuitbreaker.window.size",
+            "circuitbreaker.minimum.calls",
+            "circuitbreaker.failure.rate",
+            "circuitbreaker.slow.call.rate",
+            "circuitbreaker.slow.call.ms",
+            "circuitbreaker.open.ms",
+            "circuitbreaker.half.open.calls",
+            "ledger.mode",
+            "ledger.ring.size",
+            "journal.enabled",
+            "journal.directory",
+            "journal.segment.size",
+            "journal.flush.interval.ms",
+            "journal.groupcommit.window.ms",
+            "journal.groupcommit.batch.size",
+            "snapshot.interval.ms",
+            "statements.directory",
+            "statements.parallelism"
         };
         
         for (String prop : overridableProperties) {
@@ -212,6 +350,164 @@ public class ConfigurationManager {
     }
     
 
+    public boolean isJournalEnabled() {
+        return getBoolean("journal.enabled", true);
+    }
+    
+
+    public int getIdempotencyMaxEntries() {
+        return getInt("idempotency.max.entries", 
+                DEFAULT_IDEMPOTENCY_MAX_ENTRIES);
+    }
+    
+
+    public long getIdempotencyTtl() {
+        return getLong("idempotency.ttl.ms", DEFAULT_IDEMPOTENCY_TTL);
+    }
+    
+
+    public int getNodeId() {
+        return getInt("node.id", 0);
+    }
+    
+
+    public String getThreadPoolMode() {
+        return getString("threadpool.mode", THREADPOOL_MODE_PLATFORM).trim()
+                .toLowerCase(Locale.ROOT);
+    }
+    
+
+    public long getThreadPoolMetricsInterval() {
+        return getLong("threadpool.metrics.interval.ms", 0);
+    }
+    
+
+    public int getBulkheadSize(String nombre) {
+        int tamanio = getInt("threadpool." + nombre + ".size", 0);
+        return tamanio > 0 ? tamanio 
+                : Runtime.getRuntime().availableProcessors() * 2;
+    }
+    
+
+    public int getBulkheadQueueCapacity(String nombre) {
+        return Math.max(1, getInt("threadpool." + nombre + ".queue.capacity", 
+                1));
+    }
+    
+
+    public long getThreadPoolKeepAlive() {
+        return getLong("threadpool.keepalive.ms", DEFAULT_THREADPOOL_KEEPALIVE);
+    }
+    
+
+    public int getAccountCacheMaxEntries() {
+        return getInt("accounts.cache.max.entries", 
+                DEFAULT_ACCOUNT_CACHE_MAX_ENTRIES);
+    }
+    
+
+    public long getAccountCacheTtl() {
+        return getLong("accounts.cache.ttl.ms", DEFAULT_ACCOUNT_CACHE_TTL);
+    }
+    
+
+    public int getCircuitBreakerWindowSize() {
+        return getInt("circuitbreaker.window.size", 
+                DEFAULT_CIRCUIT_BREAKER_WINDOW);
+    }
+    
+
+    public int getCircuitBreakerMinimumCalls() {
+        return getInt("circuitbreaker.minimum.calls", 
+                DEFAULT_CIRCUIT_BREAKER_MIN_CALLS);
+    }
+    
+
+    public int getCircuitBreakerFailureRate() {
+        return getInt("circuitbreaker.failure.rate", 
+                DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE);
+    }
+    
+
+    public int getCircuitBreakerSlowCallRate() {
+        return getInt("circuitbreaker.slow.call.rate", 
+                DEFAULT_CIRCUIT_BREAKER_SLOW_RATE);
+    }
+    
+
+    public long getCircuitBreakerSlowCallDuration() {
+        return getLong("circuitbreaker.slow.call.ms", 
+                DEFAULT_CIRCUIT_BREAKER_SLOW_CALL);
+    }
+    
+
+    public long getCircuitBreakerOpenDuration() {
+        return getLong("circuitbreaker.open.ms", DEFAULT_CIRCUIT_BREAKER_OPEN);
+    }
+    
+
+    public int getCircuitBreakerHalfOpenCalls() {
+        return getInt("circuitbreaker.half.open.calls", 
+                DEFAULT_CIRCUIT_BREAKER_HALF_OPEN_CALLS);
+    }
+    
+
+    public String getLedgerMode() {
+        return getString("ledger.mode", LEDGER_MODE_LOCKS).trim()
+                .toLowerCase(Locale.ROOT);
+    }
+    
+
+    public int getLedgerRingSize() {
+        return getInt("ledger.ring.size", DEFAULT_LEDGER_RING_SIZE);
+    }
+    
+
+    public String getJournalDirectory() {
+        return getString("journal.directory", DEFAULT_JOURNAL_DIRECTORY);
+    }
+    
+
+    public int getJournalSegmentSize() {
+        return getInt("journal.segment.size", DEFAULT_JOURNAL_SEGMENT_SIZE);
+    }
+    
+
+    public long getJournalFlushInterval() {
+        return getLong("journal.flush.interval.ms", 
+                DEFAULT_JOURNAL_FLUSH_INTERVAL);
+    }
+    
+
+    public long getGroupCommitWindow() {
+        return getLong("journal.groupcommit.window.ms", 
+                DEFAULT_GROUP_COMMIT_WINDOW);
+    }
+    
+
+    public int getGroupCommitBatchSize() {
+        return getInt("journal.groupcommit.batch.size", 
+                DEFAULT_GROUP_COMMIT_BATCH_SIZE);
+    }
+    
+
+    public long getSnapshotInterval() {
+        return getLong("snapshot.interval.ms", DEFAULT_SNAPSHOT_INTERVAL);
+    }
+    
+
+    public String getStatementsDirectory() {
+        return getString("statements.directory", DEFAULT_STATEMENTS_DIRECTORY);
+    }
+    
+
+    public int getStatementsParallelism() {
+        int paralelismo = getInt("statements.parallelism", 0);
+        return paralelismo > 0 ? paralelismo 
+                : Runtime.getRuntime().availableProcessors();
+    }
+    
+
     public Dimension getDefaultWindowSize() {
         int width = getInt("ui.window.width", 800);
         int height = getInt("ui.window.height", 600);
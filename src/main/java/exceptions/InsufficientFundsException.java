@@ -1,4 +1,6 @@
 package exceptions;
+
+import models.Money;
  
 public class InsufficientFundsException extends BankingException {
     private final double availableBalance;
@@ -17,6 +19,17 @@ public class InsufficientFundsException extends BankingException {
         this.requestedAmount = requestedAmount;
     }
 
+    public InsufficientFundsException(Money availableBalance, 
+            Money requestedAmount) {
+        
+        super("FUNDS_001",
+                "Fondos insuficientes. Disponible: " + availableBalance 
+                        + ", Solicitado: " + requestedAmount,
+                "Saldo insuficiente. Disponible: " + availableBalance);
+        this.availableBalance = availableBalance.toEuros();
+        this.requestedAmount = requestedAmount.toEuros();
+    }
+
     public double getAvailableBalance() {
         return availableBalance;
     }
@@ -16,7 +16,7 @@ public interface TransferenceContract {
     interface Presenter {
         void cargarCuentas();
         void realizarTransferencia(String cuentaOrigen, String cuentaDestino, 
-                double cantidad, String concepto);
+                double cantidad, String concepto, String claveIdempotencia);
         void onDestroy();
     }
 }
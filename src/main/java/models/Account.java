@@ -3,8 +3,12 @@ package models;
 public class Account {
     private String numeroCuenta;
     private String userId;
-    private double saldo;
     private TipoCuenta tipo;
+    // El saldo vive en el BalanceBook; la cuenta solo guarda su slot
+    private final BalanceBook book;
+    private final int slot;
+    // Una vez liberado, el slot puede pertenecer ya a otra cuenta
+    private volatile boolean liberada;
     
     public enum TipoCuenta {
         CORRIENTE, AHORRO, NOMINA
@@ -12,10 +16,17 @@ public class Account {
     
     public Account(String numeroCuenta, String userId, double saldo, 
             TipoCuenta tipo) {
+        this(numeroCuenta, userId, Money.deEuros(saldo), tipo, 
+                BalanceBook.getDefault());
+    }
+    
+    public Account(String numeroCuenta, String userId, Money saldo, 
+            TipoCuenta tipo, BalanceBook book) {
         this.numeroCuenta = numeroCuenta;
         this.userId = userId;
-        this.saldo = saldo;
         this.tipo = tipo;
+        this.book = book;
+        this.slot = book.asignarSlot(saldo.getCentimos());
     }
     
     // Getters y setters
@@ -25,8 +36,52 @@ public class Account {
     }
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
-    public double getSaldo() { return saldo; }
-    public void setSaldo(double saldo) { this.saldo = saldo; }
+    public double getSaldo() { return leer() / 100.0; }
+    public void setSaldo(double saldo) { 
+        escribir(Money.deEuros(saldo).getCentimos()); 
+    }
+    public long getSaldoCentimos() { return leer(); }
+    public void setSaldoCentimos(long centimos) { escribir(centimos); }
+    public Money getSaldoMoney() { return Money.deCentimos(leer()); }
     public TipoCuenta getTipo() { return tipo; }
     public void setTipo(TipoCuenta tipo) { this.tipo = tipo; }
+    public int getSlot() { return slot; }
+    
+    public boolean isLiberada() { return liberada; }
+    
+    /**
+     * Devuelve el slot al BalanceBook. Después, leer o escribir el saldo de 
+     * esta cuenta lanza IllegalStateException en lugar de ver el saldo de la 
+     * cuenta que reutilice el slot. El llamante debe garantizar que no hay 
+     * asientos en curso sobre la cuenta.
+     */
+    public synchronized void liberar() {
+        
+        if (liberada) {
+            return;
+        }
+        liberada = true;
+        book.liberarSlot(slot);
+    }
+    
+    // La marca se comprueba después de leer: si la cuenta seguía viva, el 
+    // valor leído es suyo, porque el slot solo se reutiliza tras marcarla
+    private long leer() {
+        long centimos = book.get(slot);
+        
+        if (liberada) {
+            throw new IllegalStateException("Cuenta eliminada: " 
+                    + numeroCuenta);
+        }
+        return centimos;
+    }
+    
+    private void escribir(long centimos) {
+        
+        if (liberada) {
+            throw new IllegalStateException("Cuenta eliminada: " 
+                    + numeroCuenta);
+        }
+        book.set(slot, centimos);
+    }
 }
@@ -0,0 +1,91 @@
+package models;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Almacén de saldos en céntimos respaldado por páginas de long[] primitivos.
+ * Cada Account ocupa un slot; el saldo no vive en el objeto Account sino
+ * aquí, lo que evita un campo boxed por cuenta y mantiene los saldos
+ * contiguos en memoria. Crecer añade páginas nuevas sin copiar las
+ * existentes.
+ *
+ * La atomicidad de las operaciones compuestas (leer, comprobar, escribir) es
+ * responsabilidad del llamante, normalmente PostingEngine; aquí solo se
+ * garantiza visibilidad entre hilos.
+ */
+public final class BalanceBook {
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final VarHandle SLOTS = MethodHandles
+            .arrayElementVarHandle(long[].class);
+
+    private static final BalanceBook DEFAULT = new BalanceBook();
+
+    private volatile long[][] pages = new long[1][];
+    private int nextSlot;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    public static BalanceBook getDefault() {
+        return DEFAULT;
+    }
+
+    public synchronized int asignarSlot(long saldoInicial) {
+        int slot;
+
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = nextSlot++;
+            ensurePage(slot >>> PAGE_SHIFT);
+        }
+        set(slot, saldoInicial);
+        return slot;
+    }
+
+    public synchronized void liberarSlot(int slot) {
+        set(slot, 0L);
+
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    public long get(int slot) {
+        return (long) SLOTS.getVolatile(page(slot), slot & PAGE_MASK);
+    }
+
+    public void set(int slot, long centimos) {
+        SLOTS.setVolatile(page(slot), slot & PAGE_MASK, centimos);
+    }
+
+    public long add(int slot, long deltaCentimos) {
+        return (long) SLOTS.getAndAdd(page(slot), slot & PAGE_MASK,
+                deltaCentimos) + deltaCentimos;
+    }
+
+    public synchronized int capacidadUsada() {
+        return nextSlot - freeCount;
+    }
+
+    private long[] page(int slot) {
+        return pages[slot >>> PAGE_SHIFT];
+    }
+
+    private void ensurePage(int pageIndex) {
+        long[][] actual = pages;
+
+        if (pageIndex >= actual.length) {
+            actual = Arrays.copyOf(actual, Math.max(pageIndex + 1,
+                    actual.length * 2));
+        }
+        if (actual[pageIndex] == null) {
+            actual[pageIndex] = new long[PAGE_SIZE];
+        }
+        pages = actual;
+    }
+}
@@ -0,0 +1,110 @@
+package models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Importe en euros representado en coma fija como un long de céntimos.
+ * Inmutable; las operaciones aritméticas lanzan ArithmeticException si
+ * desbordan en lugar de perder precisión en silencio.
+ */
+public final class Money implements Comparable<Money> {
+    public static final Money ZERO = new Money(0L);
+
+    private static final char DECIMAL_SEPARATOR = DecimalFormatSymbols
+            .getInstance().getDecimalSeparator();
+
+    private final long centimos;
+
+    private Money(long centimos) {
+        this.centimos = centimos;
+    }
+
+    public static Money deCentimos(long centimos) {
+        return centimos == 0L ? ZERO : new Money(centimos);
+    }
+
+    public static Money deEuros(double euros) {
+
+        if (Double.isNaN(euros) || Double.isInfinite(euros)) {
+            throw new IllegalArgumentException("Importe no válido: " + euros);
+        }
+        return deCentimos(BigDecimal.valueOf(euros)
+                .setScale(2, RoundingMode.HALF_EVEN)
+                .movePointRight(2)
+                .longValueExact());
+    }
+
+    public static Money parse(String texto) {
+        String normalizado = texto.trim().replace(',', '.');
+        return deCentimos(new BigDecimal(normalizado)
+                .setScale(2, RoundingMode.HALF_EVEN)
+                .movePointRight(2)
+                .longValueExact());
+    }
+
+    public long getCentimos() { return centimos; }
+
+    public double toEuros() { return centimos / 100.0; }
+
+    public boolean isPositive() { return centimos > 0L; }
+
+    public Money plus(Money other) {
+        return deCentimos(Math.addExact(centimos, other.centimos));
+    }
+
+    public Money minus(Money other) {
+        return deCentimos(Math.subtractExact(centimos, other.centimos));
+    }
+
+    public Money negate() {
+        return deCentimos(Math.negateExact(centimos));
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(centimos, other.centimos);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money m && m.centimos == centimos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(centimos);
+    }
+
+    @Override
+    public String toString() {
+        return formatear(centimos);
+    }
+
+    // Equivalente a String.format("%.2f €") sin pasar por Formatter ni boxing
+    public static String formatear(long centimos) {
+        return appendTo(new StringBuilder(16), centimos).append(" €").toString();
+    }
+
+    public static StringBuilder appendTo(StringBuilder sb, long centimos) {
+        return appendTo(sb, centimos, DECIMAL_SEPARATOR);
+    }
+
+    // Con un separador fijo, para formatos que no deben depender del locale
+    public static StringBuilder appendTo(StringBuilder sb, long centimos,
+            char separador) {
+        long abs = Math.abs(centimos);
+
+        if (centimos < 0) {
+            sb.append('-');
+        }
+        long resto = abs % 100;
+        sb.append(abs / 100).append(separador);
+
+        if (resto < 10) {
+            sb.append('0');
+        }
+        return sb.append(resto);
+    }
+}
@@ -0,0 +1,45 @@
+package models;
+
+import java.time.LocalDateTime;
+
+public class MovementQuery {
+    public static final int LIMITE_POR_DEFECTO = 20;
+    
+    private final String numeroCuenta;
+    private final LocalDateTime desde;
+    private final LocalDateTime hasta;
+    private Money importeMinimo;
+    private Money importeMaximo;
+    private String concepto;
+    private String cursor;
+    private int limite = LIMITE_POR_DEFECTO;
+    
+    // desde incluido, hasta excluido; null deja el extremo abierto
+    public MovementQuery(String numeroCuenta, LocalDateTime desde, 
+            LocalDateTime hasta) {
+        this.numeroCuenta = numeroCuenta;
+        this.desde = desde;
+        this.hasta = hasta;
+    }
+    
+    // Getters y setters
+    public String getNumeroCuenta() { return numeroCuenta; }
+    public LocalDateTime getDesde() { return desde; }
+    public LocalDateTime getHasta() { return hasta; }
+    public Money getImporteMinimo() { return importeMinimo; }
+    public void setImporteMinimo(Money importeMinimo) { 
+        this.importeMinimo = importeMinimo; 
+    }
+    public Money getImporteMaximo() { return importeMaximo; }
+    public void setImporteMaximo(Money importeMaximo) { 
+        this.importeMaximo = importeMaximo; 
+    }
+    // Mismos criterios que la búsqueda de texto: todos los términos, el 
+    // último como prefijo
+    public String getConcepto() { return concepto; }
+    public void setConcepto(String concepto) { this.concepto = concepto; }
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+    public int getLimite() { return limite; }
+    public void setLimite(int limite) { this.limite = limite; }
+}
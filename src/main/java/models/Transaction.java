@@ -3,10 +3,15 @@ package models;
 import java.time.LocalDateTime;
 
 public class Transaction {
+    private static final String ID_PREFIX = "T";
+    
+    // Los ids generados se guardan como long y el texto se construye solo 
+    // cuando se pide; los históricos llegan ya como texto
     private String id;
+    private long idNumerico = -1L;
     private String cuentaOrigen;
     private String cuentaDestino;
-    private double cantidad;
+    private long cantidadCentimos;
     private TipoTransaccion tipo;
     private LocalDateTime fecha;
     private String concepto;
@@ -17,18 +22,41 @@ public class Transaction {
     
     public Transaction(String id, String cuentaOrigen, String cuentaDestino, 
                       double cantidad, TipoTransaccion tipo, String concepto) {
+        this(id, cuentaOrigen, cuentaDestino, Money.deEuros(cantidad), tipo, 
+                concepto);
+    }
+    
+    public Transaction(String id, String cuentaOrigen, String cuentaDestino, 
+                      Money importe, TipoTransaccion tipo, String concepto) {
         this.id = id;
         this.cuentaOrigen = cuentaOrigen;
         this.cuentaDestino = cuentaDestino;
-        this.cantidad = cantidad;
+        this.cantidadCentimos = importe.getCentimos();
         this.tipo = tipo;
         this.fecha = LocalDateTime.now();
         this.concepto = concepto;
     }
     
+    public Transaction(long id, String cuentaOrigen, String cuentaDestino, 
+                      Money importe, TipoTransaccion tipo, String concepto) {
+        this(null, cuentaOrigen, cuentaDestino, importe, tipo, concepto);
+        this.idNumerico = id;
+    }
+    
     // Getters y setters
-    public String getId() { return id; }
-    public void setId(String id) { this.id = id; }
+    public String getId() { 
+        
+        if (id == null && idNumerico >= 0) {
+            id = formatearId(idNumerico);
+        }
+        return id; 
+    }
+    public void setId(String id) { 
+        this.id = id; 
+        this.idNumerico = -1L;
+    }
+    /** Id numérico generado, o -1 si el id solo existe como texto. */
+    public long getIdNumerico() { return idNumerico; }
     public String getCuentaOrigen() { return cuentaOrigen; }
     public void setCuentaOrigen(String cuentaOrigen) { 
         this.cuentaOrigen = cuentaOrigen; 
@@ -37,13 +65,20 @@ public class Transaction {
     public void setCuentaDestino(String cuentaDestino) { 
         this.cuentaDestino = cuentaDestino; 
     }
-    public double getCantidad() { return cantidad; }
-    public void setCantidad(double cantidad) { this.cantidad = cantidad; }
+    public double getCantidad() { return cantidadCentimos / 100.0; }
+    public void setCantidad(double cantidad) { 
+        this.cantidadCentimos = Money.deEuros(cantidad).getCentimos(); 
+    }
+    public long getCantidadCentimos() { return cantidadCentimos; }
+    public Money getImporte() { return Money.deCentimos(cantidadCentimos); }
     public TipoTransaccion getTipo() { return tipo; }
     public void setTipo(TipoTransaccion tipo) { this.tipo = tipo; }
     public LocalDateTime getFecha() { return fecha; }
     public void setFecha(LocalDateTime fecha) { this.fecha = fecha; }
     public String getConcepto() { return concepto; }
     public void setConcepto(String concepto) { this.concepto = concepto; }
+    
+    public static String formatearId(long id) {
+        return ID_PREFIX + id;
+    }
 }
-
@@ -0,0 +1,19 @@
+package models;
+
+import java.util.List;
+
+public class TransactionPage {
+    private final List<Transaction> movimientos;
+    private final String siguienteCursor;
+    
+    public TransactionPage(List<Transaction> movimientos, String siguienteCursor) {
+        this.movimientos = movimientos;
+        this.siguienteCursor = siguienteCursor;
+    }
+    
+    // Getters
+    public List<Transaction> getMovimientos() { return movimientos; }
+    // null cuando no hay más páginas
+    public String getSiguienteCursor() { return siguienteCursor; }
+    public boolean hayMas() { return siguienteCursor != null; }
+}
@@ -0,0 +1,22 @@
+package models;
+
+public class TransferRequest {
+    private final String cuentaOrigen;
+    private final String cuentaDestino;
+    private final double cantidad;
+    private final String concepto;
+    
+    public TransferRequest(String cuentaOrigen, String cuentaDestino, 
+            double cantidad, String concepto) {
+        this.cuentaOrigen = cuentaOrigen;
+        this.cuentaDestino = cuentaDestino;
+        this.cantidad = cantidad;
+        this.concepto = concepto;
+    }
+    
+    // Getters
+    public String getCuentaOrigen() { return cuentaOrigen; }
+    public String getCuentaDestino() { return cuentaDestino; }
+    public double getCantidad() { return cantidad; }
+    public String getConcepto() { return concepto; }
+}
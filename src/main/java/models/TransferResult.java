@@ -0,0 +1,30 @@
+package models;
+
+import exceptions.BankingException;
+
+public class TransferResult {
+    private final int indice;
+    private final String transaccionId;
+    private final BankingException error;
+    
+    private TransferResult(int indice, String transaccionId, 
+            BankingException error) {
+        this.indice = indice;
+        this.transaccionId = transaccionId;
+        this.error = error;
+    }
+    
+    public static TransferResult exito(int indice, String transaccionId) {
+        return new TransferResult(indice, transaccionId, null);
+    }
+    
+    public static TransferResult fallo(int indice, BankingException error) {
+        return new TransferResult(indice, null, error);
+    }
+    
+    // Getters
+    public int getIndice() { return indice; }
+    public String getTransaccionId() { return transaccionId; }
+    public BankingException getError() { return error; }
+    public boolean isExitosa() { return error == null; }
+}
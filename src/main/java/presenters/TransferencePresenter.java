@@ -45,7 +45,7 @@ public class TransferencePresenter implements TransferenceContract.Presenter {
     
     @Override
     public void realizarTransferencia(String cuentaOrigen, String cuentaDestino, 
-            double cantidad, String concepto) {
+            double cantidad, String concepto, String claveIdempotencia) {
 
         if (cuentaOrigen == null || cuentaOrigen.trim().isEmpty()) {
             view.mostrarError("Seleccione una cuenta de origen");
@@ -66,7 +66,8 @@ public class TransferencePresenter implements TransferenceContract.Presenter {
         view.mostrarCargando();
         
         bankingService.realizarTransferencia(cuentaOrigen, cuentaDestino, 
-                cantidad, concepto, new BankingService.TransferenciaCallback() {
+                cantidad, concepto, claveIdempotencia, 
+                new BankingService.TransferenciaCallback() {
                 
                     @Override
                     public void onSuccess(String mensaje) {
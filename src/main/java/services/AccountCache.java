@@ -0,0 +1,154 @@
+package services;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import models.Account;
+
+/**
+ * Caché acotada de las listas de cuentas por usuario.
+ *
+ * Las entradas caducan a los {@code ttlMs} y, si se supera la capacidad, se
+ * expulsa la usada hace más tiempo (LRU). Cualquier cambio que afecte a una
+ * cuenta del usuario invalida su entrada. Para que una carga que leyó antes
+ * de un cambio no guarde datos ya invalidados, cada usuario tiene una
+ * versión que sube con cada invalidación: la carga toma la versión antes de
+ * leer y solo guarda si sigue siendo la misma.
+ *
+ * Las versiones viven en un array fijo de contadores repartidos por hash del
+ * usuario, así que ocupan lo mismo aunque pasen millones de usuarios; si dos
+ * usuarios comparten contador, lo único que se pierde es algún guardado.
+ */
+public class AccountCache {
+    private static final int MAX_VERSIONES = 1 << 16;
+
+    private final int capacidad;
+    private final long ttlNanos;
+    // Orden de acceso, protegido por el monitor de la caché
+    private final LinkedHashMap<String, Entrada> entradas;
+    // Usuarios con entrada, legible sin el monitor para que invalidar no lo
+    // tome si no hay nada que quitar. Se añade antes de comprobar la versión
+    // al guardar y se consulta después de subirla al invalidar, de modo que
+    // una de las dos operaciones ve siempre a la otra
+    private final Set<String> presentes = ConcurrentHashMap.newKeySet();
+    private final AtomicLongArray versiones;
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder expulsiones = new LongAdder();
+    private final LongAdder caducadas = new LongAdder();
+    private final LongAdder invalidaciones = new LongAdder();
+
+    public AccountCache(int capacidad, long ttlMs) {
+
+        if (capacidad <= 0 || ttlMs <= 0) {
+            throw new IllegalArgumentException("Parámetros de la caché de "
+                    + "cuentas inválidos: capacidad=" + capacidad + " ttl="
+                    + ttlMs);
+        }
+        this.capacidad = capacidad;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.versiones = new AtomicLongArray(Math.min(MAX_VERSIONES,
+                Integer.highestOneBit(Math.max(capacidad, 16) * 4 - 1) << 1));
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> e) {
+
+                if (size() > AccountCache.this.capacidad) {
+                    presentes.remove(e.getKey());
+                    expulsiones.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Lista en caché del usuario, o null si no está o ha caducado
+    public synchronized List<Account> obtener(String userId) {
+        Entrada e = entradas.get(userId);
+
+        if (e != null && System.nanoTime() - e.guardada > ttlNanos) {
+            entradas.remove(userId);
+            presentes.remove(userId);
+            caducadas.increment();
+            e = null;
+        }
+        if (e == null) {
+            fallos.increment();
+            return null;
+        }
+        aciertos.increment();
+        return e.cuentas;
+    }
+
+    // Versión actual del usuario; debe tomarse antes de leer los datos
+    public long version(String userId) {
+        return versiones.get(indice(userId));
+    }
+
+    /**
+     * Guarda la lista leída con la versión {@code version}; se descarta si
+     * desde entonces se ha invalidado el usuario.
+     */
+    public synchronized void guardar(String userId, long version,
+            List<Account> cuentas) {
+
+        presentes.add(userId);
+
+        if (version(userId) == version) {
+            entradas.put(userId, new Entrada(List.copyOf(cuentas),
+                    System.nanoTime()));
+        } else if (!entradas.containsKey(userId)) {
+            presentes.remove(userId);
+        }
+    }
+
+    public void invalidar(String userId) {
+        versiones.incrementAndGet(indice(userId));
+
+        if (!presentes.contains(userId)) {
+            return;
+        }
+        synchronized (this) {
+
+            if (entradas.remove(userId) != null) {
+                presentes.remove(userId);
+                invalidaciones.increment();
+            }
+        }
+    }
+
+    private int indice(String userId) {
+        int h = userId.hashCode();
+        return (h ^ (h >>> 16)) & (versiones.length() - 1);
+    }
+
+    public synchronized int tamanio() {
+        return entradas.size();
+    }
+
+    public Estadisticas getEstadisticas() {
+        return new Estadisticas(aciertos.sum(), fallos.sum(),
+                expulsiones.sum(), caducadas.sum(), invalidaciones.sum(),
+                tamanio());
+    }
+
+
+    private record Entrada(List<Account> cuentas, long guardada) {
+    }
+
+
+    public record Estadisticas(long aciertos, long fallos, long expulsiones,
+            long caducadas, long invalidaciones, int tamanio) {
+
+        public double tasaAciertos() {
+            long total = aciertos + fallos;
+            return total == 0 ? 0 : (double) aciertos / total;
+        }
+    }
+}
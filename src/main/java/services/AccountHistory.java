@@ -0,0 +1,201 @@
+package services;
+
+import exceptions.ValidationException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import models.MovementQuery;
+import models.Transaction;
+import models.TransactionPage;
+
+/**
+ * Historial de movimientos de una cuenta.
+ *
+ * Combina un buffer circular con los movimientos más recientes, que responde
+ * a "últimos N" en tiempo constante, con un {@link TransactionLog} de solo
+ * anexado, de modo que anexar es O(1) sin copias aunque el historial crezca
+ * a millones de entradas.
+ *
+ * Además mantiene un índice ordenado por fecha (skip list) para consultas por
+ * rango de fechas en O(log n + k) con paginación por cursor, y un índice
+ * invertido sobre los conceptos para búsquedas de texto.
+ */
+public class AccountHistory {
+    public static final int RECIENTES = 16;
+
+    private final Transaction[] recientes = new Transaction[RECIENTES];
+    private int cabeza; // posición donde se escribirá el siguiente
+    private final TransactionLog registro = new TransactionLog();
+    private final ConcurrentSkipListMap<Posicion, Transaction> porFecha =
+            new ConcurrentSkipListMap<>();
+    private final ConceptIndex conceptos = new ConceptIndex();
+
+    public synchronized void agregar(Transaction transaccion) {
+        recientes[cabeza] = transaccion;
+        cabeza = (cabeza + 1) % RECIENTES;
+
+        int indice = registro.agregar(transaccion);
+        porFecha.put(Posicion.de(transaccion.getFecha(), indice), transaccion);
+        conceptos.indexar(transaccion);
+    }
+
+    /**
+     * Devuelve hasta {@code n} movimientos, del más reciente al más antiguo.
+     */
+    public synchronized List<Transaction> ultimas(int n) {
+        int tamanio = registro.tamanio();
+        int cuantas = Math.min(n, tamanio);
+        List<Transaction> resultado = new ArrayList<>(cuantas);
+
+        if (cuantas <= RECIENTES) {
+            for (int i = 1; i <= cuantas; i++) {
+                resultado.add(recientes[(cabeza - i + RECIENTES) % RECIENTES]);
+            }
+        } else {
+            for (int i = tamanio - 1; i >= tamanio - cuantas; i--) {
+                resultado.add(registro.get(i));
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Movimientos en [desde, hasta) del más reciente al más antiguo, filtrados
+     * opcionalmente por importe y por concepto. Recorre solo el rango pedido de la skip list
+     * y nunca materializa el historial completo; el cursor devuelto apunta al
+     * último movimiento entregado.
+     */
+    public TransactionPage buscar(MovementQuery consulta)
+            throws ValidationException {
+        NavigableMap<Posicion, Transaction> vista = porFecha;
+
+        if (consulta.getDesde() != null) {
+            vista = vista.tailMap(Posicion.de(consulta.getDesde(),
+                    Integer.MIN_VALUE), true);
+        }
+        if (consulta.getCursor() != null) {
+            vista = vista.headMap(Posicion.parse(consulta.getCursor()), false);
+        } else if (consulta.getHasta() != null) {
+            vista = vista.headMap(Posicion.de(consulta.getHasta(),
+                    Integer.MIN_VALUE), false);
+        }
+        int limite = Math.max(1, consulta.getLimite());
+        long minimo = consulta.getImporteMinimo() != null
+                ? consulta.getImporteMinimo().getCentimos() : Long.MIN_VALUE;
+        long maximo = consulta.getImporteMaximo() != null
+                ? consulta.getImporteMaximo().getCentimos() : Long.MAX_VALUE;
+        // El filtro de concepto se resuelve una vez con el índice invertido
+        Set<Transaction> conConcepto = consulta.getConcepto() != null
+                ? conceptos.buscar(consulta.getConcepto()) : null;
+        List<Transaction> pagina = new ArrayList<>(Math.min(limite, 64));
+        Posicion ultima = null;
+        boolean hayMas = false;
+
+        for (Map.Entry<Posicion, Transaction> e
+                : vista.descendingMap().entrySet()) {
+            long importe = e.getValue().getCantidadCentimos();
+
+            if (importe < minimo || importe > maximo
+                    || (conConcepto != null
+                            && !conConcepto.contains(e.getValue()))) {
+                continue;
+            }
+            // Con la página llena, basta una fila más que pase el filtro
+            // para saber que hay otra página
+            if (pagina.size() == limite) {
+                hayMas = true;
+                break;
+            }
+            pagina.add(e.getValue());
+            ultima = e.getKey();
+        }
+        return new TransactionPage(pagina, hayMas ? ultima.toCursor() : null);
+    }
+
+    /**
+     * Recorre en orden cronológico los movimientos con fecha igual o 
+     * posterior a {@code desde} y registrados antes de la posición 
+     * {@code corte}, lo que permite trabajar sobre un estado fijado aunque el 
+     * historial siga creciendo.
+     */
+    public void recorrer(LocalDateTime desde, int corte,
+            Consumer<Transaction> accion) {
+
+        for (Map.Entry<Posicion, Transaction> e : porFecha.tailMap(
+                Posicion.de(desde, Integer.MIN_VALUE), true).entrySet()) {
+
+            if (e.getKey().indice() < corte) {
+                accion.accept(e.getValue());
+            }
+        }
+    }
+
+    public Set<Transaction> buscarConcepto(String consulta) {
+        return conceptos.buscar(consulta);
+    }
+
+    public int tamanio() {
+        return registro.tamanio();
+    }
+
+    /**
+     * Movimiento en la posición {@code indice} en orden de registro.
+     */
+    public Transaction get(int indice) {
+        return registro.get(indice);
+    }
+
+    /**
+     * Copia de los movimientos en [desde, hasta) en orden de registro, sin
+     * bloquear los anexados mientras se copian.
+     */
+    public Transaction[] copiar(int desde, int hasta) {
+        return registro.copiar(desde, hasta);
+    }
+
+
+    // Clave del índice: fecha y, para desempatar, la posición en el historial
+    private record Posicion(long segundos, int nanos, int indice)
+            implements Comparable<Posicion> {
+
+        static Posicion de(LocalDateTime fecha, int indice) {
+            return new Posicion(fecha.toEpochSecond(ZoneOffset.UTC),
+                    fecha.getNano(), indice);
+        }
+
+        static Posicion parse(String cursor) throws ValidationException {
+            String[] partes = cursor.split(":");
+
+            try {
+                if (partes.length != 3) {
+                    throw new NumberFormatException(cursor);
+                }
+                return new Posicion(Long.parseLong(partes[0]),
+                        Integer.parseInt(partes[1]), Integer.parseInt(partes[2]));
+            } catch (NumberFormatException e) {
+                throw new ValidationException("cursor", "Cursor de paginación "
+                        + "no válido");
+            }
+        }
+
+        String toCursor() {
+            return segundos + ":" + nanos + ":" + indice;
+        }
+
+        @Override
+        public int compareTo(Posicion o) {
+            int c = Long.compare(segundos, o.segundos);
+
+            if (c == 0) {
+                c = Integer.compare(nanos, o.nanos);
+            }
+            return c != 0 ? c : Integer.compare(indice, o.indice);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -24,6 +25,7 @@ public class AuthService {
     
     private User usuarioActual;
     private final ThreadPoolManager threadManager;
+    private final CircuitBreaker circuitoLogin;
     private final SecureRandom secureRandom;
     
     private final Map<String, Integer> loginAttempts = new ConcurrentHashMap<>();
@@ -46,6 +48,7 @@ public class AuthService {
     
     private AuthService() {
         this.threadManager = ThreadPoolManager.getInstance();
+        this.circuitoLogin = CircuitBreaker.configurado("login", LOGGER);
         this.secureRandom = new SecureRandom();
         userSalts.put(VALID_EMAIL, USER_SALT);
         LOGGER.info("ImprovedAuthService inicializado");
@@ -86,47 +89,61 @@ public class AuthService {
             callback.onError(e);
             return;
         }
-        threadManager.executeAsync(() -> {
+        Deadline plazo = Deadline.deRed();
+        Consumer<User> exito = plazo.unaVez(callback::onSuccess);
+        Consumer<BankingException> error = plazo.unaVez(callback::onError);
+        
+        threadManager.executeAsync(ThreadPoolManager.Bulkhead.AUTH, 
+                circuitoLogin, plazo, () -> {
             
             try {
                 // Simular latencia de red/base de datos
                 Thread.sleep(1500);
                 
+                // A partir de aquí el login tiene efectos (sesión, intentos 
+                // fallidos): ya no se cancela
+                if (!plazo.comprometer()) {
+                    return false;
+                }
                 // Verificar credenciales
                 if (authenticateUser(email, password)) {
                     // Reset intentos en caso de login exitoso
                     resetLoginAttempts(email);
-                    
+                
                     User usuario = createUserFromEmail(email);
                     usuarioActual = usuario;
-                    
+                
                     LOGGER.log(Level.INFO, "Login exitoso para usuario: {0}", 
                             usuario.getNombre());
-                    callback.onSuccess(usuario);
+                    exito.accept(usuario);
                 } else {
                     incrementLoginAttempts(email);
                     String errorMessage = buildAuthenticationErrorMessage(email);
                     AuthenticationException authEx = new AuthenticationException(
                             errorMessage);
-                    
+                
                     LOGGER.log(Level.WARNING, "Fallo de autenticaci\u00f3n para: {0}. "
                             + "Intentos: {1}", new Object[]{email, 
                                 getLoginAttempts(email)});
-                    callback.onError(authEx);
-                }                
+                    error.accept(authEx);
+                }
+                // Credenciales erróneas también es una respuesta correcta del 
+                // backend
+                return true;
             } catch (InterruptedException ex) {
                 Thread.currentThread().interrupt();
                 NetworkException netEx = new NetworkException("Operación interrumpida", 
                         ex);
                 LOGGER.log(Level.SEVERE, "Login interrumpido", netEx);
-                callback.onError(netEx);
+                error.accept(netEx);
             } catch (Exception e) {
                 ServerException serverEx = new ServerException("Error interno durante login", 
                         e);
                 LOGGER.log(Level.SEVERE, "Error inesperado en login", serverEx);
-                callback.onError(serverEx);
+                error.accept(serverEx);
             }
-        });
+            return false;
+        }, callback::onError);
     }
     
 
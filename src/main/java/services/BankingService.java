@@ -1,103 +1,987 @@
 package services;
 
+import config.ConfigurationManager;
+import exceptions.AccountNotFoundException;
+import exceptions.BankingException;
+import exceptions.NetworkException;
+import exceptions.ServerException;
+import exceptions.ValidationException;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import models.Account;
+import models.BalanceBook;
+import models.Money;
+import models.MovementQuery;
 import models.Transaction;
+import models.TransactionPage;
+import models.TransferRequest;
+import models.TransferResult;
 
 public class BankingService {
+    private static final Logger LOGGER = Logger
+            .getLogger(BankingService.class.getName());
+    private static final int ULTIMAS_TRANSACCIONES = 5;
     private static BankingService instance;
-    private List<Account> cuentas;
-    private List<Transaction> transacciones;
+    private final TransactionLog transacciones = new TransactionLog();
+    
+    // Índices de cuentas: primario por número de cuenta y secundario por usuario.
+    // El primario es además el registro de cuentas: altas y bajas son O(1) y
+    // las búsquedas no recorren ninguna lista. Ambos se mantienen a través de
+    // indexarCuenta y desindexarCuenta.
+    private final Map<String, Account> cuentasPorNumero = new ConcurrentHashMap<>();
+    private final Map<String, List<Account>> cuentasPorUsuario = 
+            new ConcurrentHashMap<>();
+    private final LedgerEngine ledger = crearLedger();
+    private final ThreadPoolManager threadManager = ThreadPoolManager.getInstance();
+    // Historial por cuenta: "últimos N" en O(1) sin recorrer el global
+    private final Map<String, AccountHistory> historialPorCuenta = 
+            new ConcurrentHashMap<>();
+    private final TransactionAggregator aggregator = new TransactionAggregator();
+    private final TransactionIdGenerator idGenerator = new TransactionIdGenerator(
+            ConfigurationManager.getInstance().getNodeId());
+    private final SingleFlight<List<Account>> cargasCuentas = 
+            new SingleFlight<>();
+    private final AccountCache cacheCuentas = new AccountCache(
+            ConfigurationManager.getInstance().getAccountCacheMaxEntries(), 
+            ConfigurationManager.getInstance().getAccountCacheTtl());
+    // Cortocircuito por operación, creado con su primera llamada
+    private final Map<String, CircuitBreaker> circuitos = 
+            new ConcurrentHashMap<>();
+    private final IdempotencyCache idempotencia = new IdempotencyCache(
+            ConfigurationManager.getInstance().getIdempotencyMaxEntries(), 
+            ConfigurationManager.getInstance().getIdempotencyTtl());
+    
+    private final TransactionJournal journal;
+    private final GroupCommitter groupCommitter;
+    private final LedgerSnapshotter snapshotter;
+    // Las mutaciones toman el lock de lectura; la captura de instantáneas el de 
+    // escritura, para obtener un punto consistente entre diario y memoria
+    private final ReentrantReadWriteLock ledgerLock = new ReentrantReadWriteLock();
     
     private BankingService() {
-        inicializarDatos();
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        journal = abrirDiario();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::cerrar));
+        
+        if (journal == null) {
+            groupCommitter = null;
+            snapshotter = null;
+            inicializarDatos();
+            return;
+        }
+        groupCommitter = new GroupCommitter(journal,
+                config.getGroupCommitWindow(), config.getGroupCommitBatchSize());
+        snapshotter = new LedgerSnapshotter(
+                Paths.get(config.getJournalDirectory()), journal, 
+                this::capturarImagen);
+        arrancar();
+        snapshotter.iniciar(config.getSnapshotInterval());
+    }
+    
+    private void arrancar() {
+        long inicio = System.nanoTime();
+        LedgerSnapshotter.Imagen imagen = null;
+        
+        try {
+            imagen = snapshotter.cargarUltima();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error cargando la instantánea", e);
+        }
+        if (imagen != null) {
+            cargarImagen(imagen);
+            recuperarHistorial(imagen);
+        }
+        if (imagen != null || !journal.isEmpty()) {
+            recuperarDiario(imagen == null ? 0L : imagen.segmento());
+        } else {
+            inicializarDatos();
+        }
+        LOGGER.log(Level.INFO, "Arranque del libro mayor en {0} ms "
+                + "(instantánea: {1}): {2} cuentas, {3} transacciones", 
+                new Object[]{
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio),
+                    imagen != null ? imagen.segmento() : "ninguna",
+                    cuentasPorNumero.size(), transacciones.tamanio()});
     }
     
-    public static BankingService getInstance() {
+    private void cerrar() {
+        // Primero se aplican las transferencias ya encoladas, con o sin diario
+        ledger.close();
+        
+        if (journal == null) {
+            return;
+        }
+        try {
+            if (snapshotter != null) {
+                snapshotter.close();
+            }
+            // Se vacían las confirmaciones pendientes antes de cerrar
+            if (groupCommitter != null) {
+                groupCommitter.close();
+            }
+            journal.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error cerrando el diario", e);
+        }
+    }
+    
+    private static LedgerEngine crearLedger() {
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        
+        if (ConfigurationManager.LEDGER_MODE_RING.equals(config.getLedgerMode())) {
+            LOGGER.log(Level.INFO, "Libro mayor de un único escritor (anillo de "
+                    + "{0} posiciones)", config.getLedgerRingSize());
+            return new RingBufferLedger(config.getLedgerRingSize());
+        }
+        return new PostingEngine();
+    }
+    
+    public static synchronized BankingService getInstance() {
         if (instance == null) {
             instance = new BankingService();
         }
         return instance;
     }
     
+    private TransactionJournal abrirDiario() {
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        
+        if (!config.isJournalEnabled()) {
+            LOGGER.warning("Diario deshabilitado: los datos no se persistirán");
+            return null;
+        }
+        try {
+            TransactionJournal diario = new TransactionJournal(
+                    Paths.get(config.getJournalDirectory()), 
+                    config.getJournalSegmentSize());
+            diario.iniciar(config.getJournalFlushInterval());
+            return diario;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "No se pudo abrir el diario, se continúa "
+                    + "sin persistencia", e);
+            return null;
+        }
+    }
+    
+    private void cargarImagen(LedgerSnapshotter.Imagen imagen) {
+        
+        for (LedgerSnapshotter.CuentaImagen c : imagen.cuentas()) {
+            indexarCuenta(new Account(c.numeroCuenta(), c.userId(), 
+                    Money.deCentimos(c.saldoCentimos()), c.tipo(), 
+                    BalanceBook.getDefault()));
+        }
+        idGenerator.avanzarHasta(imagen.ultimoId());
+    }
+    
+    // El historial que cubre la instantánea está en su archivo compacto; los 
+    // segmentos del diario correspondientes ya se han borrado
+    private void recuperarHistorial(LedgerSnapshotter.Imagen imagen) {
+        
+        try {
+            snapshotter.cargarHistorial(this::anexarTransaccion);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error recuperando el historial", e);
+        }
+        if (transacciones.tamanio() != imagen.transacciones()) {
+            LOGGER.log(Level.WARNING, "El historial archivado tiene {0} "
+                    + "transacciones y la instantánea esperaba {1}: el archivo "
+                    + "está incompleto o dañado", new Object[]{
+                        transacciones.tamanio(), imagen.transacciones()});
+        }
+    }
+    
+    private LedgerSnapshotter.Imagen capturarImagen() throws IOException {
+        ledgerLock.writeLock().lock();
+        try {
+            long segmento = journal.rotar();
+            List<LedgerSnapshotter.CuentaImagen> imagenCuentas = 
+                    new ArrayList<>(cuentasPorNumero.size());
+            
+            for (Account c : cuentasPorNumero.values()) {
+                imagenCuentas.add(new LedgerSnapshotter.CuentaImagen(
+                        c.getNumeroCuenta(), c.getUserId(), c.getTipo(), 
+                        c.getSaldoCentimos()));
+            }
+            return new LedgerSnapshotter.Imagen(segmento, 
+                    transacciones.tamanio(), idGenerator.ultimo(), 
+                    imagenCuentas);
+        } finally {
+            ledgerLock.writeLock().unlock();
+        }
+    }
+    
+    private void recuperarDiario(long desdeSegmento) {
+        
+        try {
+            journal.recuperar(new TransactionJournal.Visitor() {
+                @Override
+                public void onCuenta(String numeroCuenta, String userId, 
+                        Account.TipoCuenta tipo, Money saldo) {
+                    indexarCuenta(new Account(numeroCuenta, userId, saldo, tipo, 
+                            BalanceBook.getDefault()));
+                }
+                
+                @Override
+                public void onCuentaEliminada(String numeroCuenta) {
+                    desindexarCuenta(numeroCuenta);
+                }
+                
+                @Override
+                public void onTransaccion(Transaction transaccion, 
+                        boolean aplicaSaldos) {
+                    
+                    if (aplicaSaldos) {
+                        aplicarSaldos(transaccion);
+                    }
+                    // Los ids nuevos no deben repetir los ya registrados
+                    idGenerator.avanzarHasta(transaccion.getIdNumerico());
+                    anexarTransaccion(transaccion);
+                }
+            }, desdeSegmento);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error recuperando el diario", e);
+        }
+    }
+    
+    // Solo para la reproducción del diario, que es monohilo
+    private void aplicarSaldos(Transaction transaccion) {
+        long cantidad = transaccion.getCantidadCentimos();
+        Account origen = buscarCuenta(transaccion.getCuentaOrigen());
+        Account destino = buscarCuenta(transaccion.getCuentaDestino());
+        
+        if (origen != null) {
+            origen.setSaldoCentimos(origen.getSaldoCentimos() - cantidad);
+        }
+        if (destino != null) {
+            destino.setSaldoCentimos(destino.getSaldoCentimos() + cantidad);
+        }
+    }
+    
     private void inicializarDatos() {
-        cuentas = new ArrayList<>();
-        cuentas.add(new Account("ES21 3058 0001 2720 0123 4567", "1", 2500.75, 
-                Account.TipoCuenta.CORRIENTE));
-        cuentas.add(new Account("ES21 3058 0001 2720 0987 6543", "1", 1200.30, 
-                Account.TipoCuenta.AHORRO));
         
-        transacciones = new ArrayList<>();
-        transacciones.add(new Transaction("T001", "ES21 3058 0001 2720 0123 4567", 
-                "ES21 1234 5678 9012 3456 7890", 150.0, 
-                Transaction.TipoTransaccion.TRANSFERENCIA, "Pago alquiler"));
-        transacciones.add(new Transaction("T002", null, "ES21 3058 0001 2720 0123 4567", 
-                1000.0, Transaction.TipoTransaccion.INGRESO, "Nómina"));
+        try {
+            registrarCuenta(new Account("ES21 3058 0001 2720 0123 4567", "1", 
+                    2500.75, Account.TipoCuenta.CORRIENTE));
+            registrarCuenta(new Account("ES21 3058 0001 2720 0987 6543", "1", 
+                    1200.30, Account.TipoCuenta.AHORRO));
+            
+            // Movimientos históricos: no alteran los saldos iniciales. Se 
+            // registran del más antiguo al más reciente.
+            registrarMovimientoHistorico(new Transaction("T002", null, 
+                    "ES21 3058 0001 2720 0123 4567", 1000.0, 
+                    Transaction.TipoTransaccion.INGRESO, "Nómina"));
+            registrarMovimientoHistorico(new Transaction("T001", 
+                    "ES21 3058 0001 2720 0123 4567", 
+                    "ES21 1234 5678 9012 3456 7890", 150.0, 
+                    Transaction.TipoTransaccion.TRANSFERENCIA, "Pago alquiler"));
+        } catch (ServerException e) {
+            LOGGER.log(Level.SEVERE, "Error registrando los datos iniciales", e);
+        }
+    }
+    
+    private void registrarMovimientoHistorico(Transaction transaccion) 
+            throws ServerException {
+        ledgerLock.readLock().lock();
+        try {
+            if (journal != null) {
+                journal.registrarTransaccion(transaccion, false);
+            }
+            anexarTransaccion(transaccion);
+        } finally {
+            ledgerLock.readLock().unlock();
+        }
     }
     
+    public synchronized void registrarCuenta(Account cuenta) 
+            throws ServerException {
+        
+        // La cuenta ya ocupa un slot del BalanceBook: si no llega a 
+        // indexarse hay que devolverlo
+        if (cuentasPorNumero.containsKey(cuenta.getNumeroCuenta())) {
+            cuenta.liberar();
+            throw new IllegalArgumentException("Cuenta ya registrada: " + 
+                    cuenta.getNumeroCuenta());
+        }
+        ledgerLock.readLock().lock();
+        try {
+            if (journal != null) {
+                journal.registrarCuenta(cuenta);
+            }
+            indexarCuenta(cuenta);
+        } catch (ServerException e) {
+            cuenta.liberar();
+            throw e;
+        } finally {
+            ledgerLock.readLock().unlock();
+        }
+    }
+    
+    public synchronized boolean eliminarCuenta(String numeroCuenta) 
+            throws ServerException {
+        
+        if (!cuentasPorNumero.containsKey(numeroCuenta)) {
+            return false;
+        }
+        // Exclusivo con los asientos: ninguna transferencia en curso puede 
+        // escribir en el slot una vez liberado y reasignado a otra cuenta
+        ledgerLock.writeLock().lock();
+        try {
+            if (journal != null) {
+                journal.registrarCuentaEliminada(numeroCuenta);
+            }
+            return desindexarCuenta(numeroCuenta);
+        } finally {
+            ledgerLock.writeLock().unlock();
+        }
+    }
+    
+    private synchronized void indexarCuenta(Account cuenta) {
+        cacheCuentas.invalidar(String.valueOf(cuenta.getUserId()));
+        cuentasPorNumero.put(cuenta.getNumeroCuenta(), cuenta);
+        // Las listas por usuario son inmutables: los lectores nunca ven una 
+        // lista a medio modificar
+        cuentasPorUsuario.merge(cuenta.getUserId(), List.of(cuenta), 
+                (actual, nueva) -> {
+                    List<Account> combinada = new ArrayList<>(actual);
+                    combinada.addAll(nueva);
+                    return List.copyOf(combinada);
+                });
+    }
+    
+    private synchronized boolean desindexarCuenta(String numeroCuenta) {
+        Account cuenta = cuentasPorNumero.remove(numeroCuenta);
+        
+        if (cuenta == null) {
+            return false;
+        }
+        cacheCuentas.invalidar(String.valueOf(cuenta.getUserId()));
+        cuenta.liberar();
+        historialPorCuenta.remove(numeroCuenta);
+        cuentasPorUsuario.computeIfPresent(cuenta.getUserId(), 
+                (userId, actual) -> {
+                    List<Account> restante = new ArrayList<>(actual);
+                    restante.remove(cuenta);
+                    return restante.isEmpty() ? null : List.copyOf(restante);
+                });
+        return true;
+    }
+    
+    /**
+     * Ejecuta la tarea en el compartimento indicado con el plazo dado, tras el 
+     * cortocircuito de {@code operacion}. Si el cortocircuito está abierto o 
+     * el compartimento saturado la tarea no se ejecuta, y si vence el plazo 
+     * se cancela; en todos los casos se notifica a {@code fallo}, que no debe 
+     * estar guardado por el plazo (las entregas de la propia tarea sí).
+     */
+    private void ejecutarAsync(String operacion, 
+            ThreadPoolManager.Bulkhead bulkhead, Deadline plazo, 
+            Runnable tarea, Consumer<String> fallo) {
+        CircuitBreaker circuito = circuitos.computeIfAbsent(operacion, 
+                k -> CircuitBreaker.configurado(k, LOGGER));
+        
+        threadManager.executeAsync(bulkhead, circuito, plazo, () -> {
+            tarea.run();
+            return true;
+        }, e -> fallo.accept(e instanceof NetworkException 
+                ? e.getUserFriendlyMessage() : e.getMessage()));
+    }
+    
+    // El global es de solo anexado (orden cronológico); cada cuenta propia 
+    // implicada recibe además la transacción en su historial
+    private void anexarTransaccion(Transaction transaccion) {
+        
+        transacciones.agregar(transaccion);
+        String origen = transaccion.getCuentaOrigen();
+        String destino = transaccion.getCuentaDestino();
+        Account cuentaOrigen = buscarCuenta(origen);
+        Account cuentaDestino = buscarCuenta(destino);
+        
+        // Los saldos de estas cuentas acaban de cambiar
+        if (cuentaOrigen != null) {
+            historial(origen).agregar(transaccion);
+            cacheCuentas.invalidar(String.valueOf(cuentaOrigen.getUserId()));
+        }
+        if (cuentaDestino != null && !destino.equals(origen)) {
+            historial(destino).agregar(transaccion);
+            cacheCuentas.invalidar(String.valueOf(cuentaDestino.getUserId()));
+        }
+    }
+    
+    private AccountHistory historial(String numeroCuenta) {
+        return historialPorCuenta.computeIfAbsent(numeroCuenta, 
+                k -> new AccountHistory());
+    }
+    
+    public Account buscarCuenta(String numeroCuenta) {
+        return numeroCuenta == null ? null : cuentasPorNumero.get(numeroCuenta);
+    }
+    
+    public List<Account> buscarCuentasUsuario(String userId) {
+        return userId == null ? Collections.emptyList() 
+                : cuentasPorUsuario.getOrDefault(userId, Collections.emptyList());
+    }
+    
+    /**
+     * Las cuentas se sirven de la caché mientras no caduquen ni cambien; si 
+     * no están, las cargas simultáneas de un mismo usuario (por ejemplo, el 
+     * panel y la pantalla de transferencias al refrescar) comparten una sola 
+     * llamada al backend. Cada solicitud recibe su propia copia de la lista.
+     */
     public void obtenerCuentas(String userId, CuentasCallback callback) {
-        new Thread(() -> {
+        List<Account> enCache = cacheCuentas.obtener(String.valueOf(userId));
+        
+        if (enCache != null) {
+            callback.onSuccess(new ArrayList<>(enCache));
+            return;
+        }
+        SingleFlight<List<Account>>.Vuelo vuelo = cargasCuentas.unirse(
+                String.valueOf(userId), 
+                cuentas -> callback.onSuccess(new ArrayList<>(cuentas)), 
+                callback::onError);
+        
+        if (vuelo == null) {
+            return;
+        }
+        Deadline plazo = Deadline.deRed();
+        Consumer<List<Account>> exito = plazo.unaVez(vuelo::completar);
+        Consumer<String> error = plazo.unaVez(vuelo::fallar);
+        
+        ejecutarAsync("obtenerCuentas", 
+                ThreadPoolManager.Bulkhead.CONSULTAS, plazo, () -> {
             
             try {
                 Thread.sleep(800);
-                List<Account> cuentasUsuario = cuentas.stream()
-                    .filter(c -> c.getUserId().equals(userId))
-                    .collect(java.util.stream.Collectors.toList());
-                callback.onSuccess(cuentasUsuario);
+                String clave = String.valueOf(userId);
+                long version = cacheCuentas.version(clave);
+                List<Account> cuentasUsuario = buscarCuentasUsuario(userId);
+                cacheCuentas.guardar(clave, version, cuentasUsuario);
+                exito.accept(cuentasUsuario);
             } catch (InterruptedException e) {
-                callback.onError("Error al cargar cuentas");
+                Thread.currentThread().interrupt();
+                error.accept("Error al cargar cuentas");
             }
-        }).start();
+        }, vuelo::fallar);
+    }
+    
+    // Solicitudes de obtenerCuentas servidas por una carga ya en curso
+    public long getCargasCuentasAhorradas() {
+        return cargasCuentas.getAhorradas();
+    }
+    
+    public AccountCache.Estadisticas getEstadisticasCacheCuentas() {
+        return cacheCuentas.getEstadisticas();
     }
     
     public void obtenerTransacciones(String userId, TransaccionesCallback callback) {
-        new Thread(() -> {
+        Deadline plazo = Deadline.deRed();
+        Consumer<List<Transaction>> exito = plazo.unaVez(callback::onSuccess);
+        Consumer<String> error = plazo.unaVez(callback::onError);
+        
+        ejecutarAsync("obtenerTransacciones", 
+                ThreadPoolManager.Bulkhead.CONSULTAS, plazo, () -> {
+            
+            try {
+                Thread.sleep(600);
+                exito.accept(ultimasTransacciones(userId, 
+                        ULTIMAS_TRANSACCIONES));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error.accept("Error al cargar transacciones");
+            }
+        }, callback::onError);
+    }
+    
+    /**
+     * Últimas {@code n} transacciones de las cuentas del usuario, de la más 
+     * reciente a la más antigua. Solo se consultan los buffers de recientes 
+     * de sus cuentas, por lo que el coste no depende del tamaño del historial.
+     */
+    public List<Transaction> ultimasTransacciones(String userId, int n) {
+        List<Transaction> candidatas = new ArrayList<>();
+        
+        for (Account cuenta : buscarCuentasUsuario(userId)) {
+            AccountHistory h = historialPorCuenta.get(cuenta.getNumeroCuenta());
+            
+            if (h != null) {
+                for (Transaction t : h.ultimas(n)) {
+                    // Un traspaso entre cuentas propias aparece en ambas
+                    if (!candidatas.contains(t)) {
+                        candidatas.add(t);
+                    }
+                }
+            }
+        }
+        candidatas.sort(Comparator.comparing(Transaction::getFecha).reversed());
+        return candidatas.size() > n ? new ArrayList<>(candidatas.subList(0, n)) 
+                : candidatas;
+    }
+    
+    /**
+     * Exporta el historial completo de una cuenta al canal indicado, en CSV o 
+     * en binario, sin construir una lista intermedia. Devuelve el número de 
+     * filas escritas. El canal no se cierra.
+     */
+    public long exportarTransacciones(String numeroCuenta, 
+            TransactionExporter.Formato formato, WritableByteChannel canal) 
+            throws BankingException {
+        
+        if (buscarCuenta(numeroCuenta) == null) {
+            throw new AccountNotFoundException(numeroCuenta);
+        }
+        AccountHistory h = historial(numeroCuenta);
+        long inicio = System.nanoTime();
+        
+        try {
+            long filas = new TransactionExporter(canal, formato).exportar(h);
+            LOGGER.log(Level.INFO, "Exportadas {0} transacciones de {1} en {2} ms", 
+                    new Object[]{filas, numeroCuenta, 
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)});
+            return filas;
+        } catch (IOException e) {
+            throw new ServerException("Error exportando transacciones", e);
+        }
+    }
+    
+    /**
+     * Genera los extractos del mes indicado para todas las cuentas, en 
+     * paralelo, sobre un corte consistente del libro mayor.
+     */
+    public StatementGenerator.Resultado generarExtractos(YearMonth mes) 
+            throws ServerException {
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        List<StatementGenerator.Corte> cortes;
+        
+        // Con el lock de escritura no hay transferencias a medio aplicar: 
+        // saldos e historiales corresponden al mismo instante
+        ledgerLock.writeLock().lock();
+        try {
+            cortes = new ArrayList<>(cuentasPorNumero.size());
+            
+            for (Account c : cuentasPorNumero.values()) {
+                AccountHistory h = historialPorCuenta.get(c.getNumeroCuenta());
+                cortes.add(new StatementGenerator.Corte(c.getNumeroCuenta(), 
+                        c.getTipo(), c.getSaldoCentimos(), h, 
+                        h != null ? h.tamanio() : 0));
+            }
+        } finally {
+            ledgerLock.writeLock().unlock();
+        }
+        
+        try {
+            return new StatementGenerator(
+                    Paths.get(config.getStatementsDirectory()), mes, 
+                    config.getStatementsParallelism()).generar(cortes);
+        } catch (IOException e) {
+            throw new ServerException("Error generando los extractos", e);
+        }
+    }
+    
+    public void obtenerMovimientos(MovementQuery consulta, 
+            MovimientosCallback callback) {
+        Deadline plazo = Deadline.deRed();
+        Consumer<TransactionPage> exito = plazo.unaVez(callback::onSuccess);
+        Consumer<String> error = plazo.unaVez(callback::onError);
+        
+        ejecutarAsync("obtenerMovimientos", 
+                ThreadPoolManager.Bulkhead.CONSULTAS, plazo, () -> {
             
             try {
                 Thread.sleep(600);
-                // Obtener últimas 5 transacciones
-                List<Transaction> ultimasTransacciones = transacciones.stream()
-                    .limit(5)
-                    .collect(java.util.stream.Collectors.toList());
-                callback.onSuccess(ultimasTransacciones);
+                exito.accept(consultarMovimientos(consulta));
+            } catch (BankingException e) {
+                error.accept(e.getUserFriendlyMessage());
             } catch (InterruptedException e) {
-                callback.onError("Error al cargar transacciones");
+                Thread.currentThread().interrupt();
+                error.accept("Error al cargar movimientos");
             }
-        }).start();
+        }, callback::onError);
+    }
+    
+    public TransactionPage consultarMovimientos(MovementQuery consulta) 
+            throws BankingException {
+        
+        if (buscarCuenta(consulta.getNumeroCuenta()) == null) {
+            throw new AccountNotFoundException(consulta.getNumeroCuenta());
+        }
+        AccountHistory h = historialPorCuenta.get(consulta.getNumeroCuenta());
+        return h == null ? new TransactionPage(Collections.emptyList(), null) 
+                : h.buscar(consulta);
+    }
+    
+    public void buscarTransacciones(String userId, String consulta, 
+            TransaccionesCallback callback) {
+        Deadline plazo = Deadline.deRed();
+        Consumer<List<Transaction>> exito = plazo.unaVez(callback::onSuccess);
+        Consumer<String> error = plazo.unaVez(callback::onError);
+        
+        ejecutarAsync("buscarTransacciones", 
+                ThreadPoolManager.Bulkhead.CONSULTAS, plazo, () -> {
+            
+            try {
+                Thread.sleep(600);
+                exito.accept(buscarTransacciones(userId, consulta, 
+                        MovementQuery.LIMITE_POR_DEFECTO));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error.accept("Error al buscar transacciones");
+            }
+        }, callback::onError);
+    }
+    
+    /**
+     * Búsqueda de texto sobre los conceptos de las cuentas del usuario, sin 
+     * distinguir mayúsculas ni acentos; el último término admite prefijo. 
+     * Devuelve como mucho {@code limite} resultados, los más recientes primero.
+     */
+    public List<Transaction> buscarTransacciones(String userId, String consulta, 
+            int limite) {
+        Set<Transaction> vistas = Collections.newSetFromMap(
+                new IdentityHashMap<>());
+        // Montículo de mínimos por fecha: conserva solo las "limite" más nuevas
+        PriorityQueue<Transaction> mejores = new PriorityQueue<>(
+                Comparator.comparing(Transaction::getFecha));
+        
+        for (Account cuenta : buscarCuentasUsuario(userId)) {
+            AccountHistory h = historialPorCuenta.get(cuenta.getNumeroCuenta());
+            
+            if (h == null) {
+                continue;
+            }
+            for (Transaction t : h.buscarConcepto(consulta)) {
+                
+                if (!vistas.add(t)) {
+                    continue;
+                }
+                mejores.add(t);
+                
+                if (mejores.size() > limite) {
+                    mejores.poll();
+                }
+            }
+        }
+        List<Transaction> resultado = new ArrayList<>(mejores);
+        resultado.sort(Comparator.comparing(Transaction::getFecha).reversed());
+        return resultado;
+    }
+    
+    public void obtenerTotales(String userId, TotalesCallback callback) {
+        Deadline plazo = Deadline.deRed();
+        Consumer<TransactionAggregator.Totales> exito = 
+                plazo.unaVez(callback::onSuccess);
+        Consumer<String> error = plazo.unaVez(callback::onError);
+        
+        ejecutarAsync("obtenerTotales", 
+                ThreadPoolManager.Bulkhead.CONSULTAS, plazo, () -> {
+            
+            try {
+                Thread.sleep(600);
+                exito.accept(agregarTransacciones(userId));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error.accept("Error al calcular los totales");
+            }
+        }, callback::onError);
+    }
+    
+    /**
+     * Totales por tipo, mes y cuenta de las transacciones de las cuentas del 
+     * usuario, o de todo el historial si {@code userId} es null. Para un 
+     * usuario solo se copian los historiales de sus cuentas, no el global.
+     */
+    public TransactionAggregator.Totales agregarTransacciones(String userId) {
+        
+        if (userId == null) {
+            return aggregator.agregar(transacciones.copiar(), null);
+        }
+        Set<String> propias = new HashSet<>();
+        
+        for (Account cuenta : buscarCuentasUsuario(userId)) {
+            propias.add(cuenta.getNumeroCuenta());
+        }
+        List<Transaction> filas = new ArrayList<>();
+        
+        for (String cuenta : propias) {
+            AccountHistory h = historialPorCuenta.get(cuenta);
+            
+            if (h == null) {
+                continue;
+            }
+            for (Transaction t : h.copiar(0, Integer.MAX_VALUE)) {
+                String otra = cuenta.equals(t.getCuentaOrigen()) 
+                        ? t.getCuentaDestino() : t.getCuentaOrigen();
+                
+                // Un traspaso entre dos cuentas propias está en ambos 
+                // historiales: cuenta solo desde la de menor número
+                if (otra == null || !propias.contains(otra) 
+                        || cuenta.compareTo(otra) <= 0) {
+                    filas.add(t);
+                }
+            }
+        }
+        return aggregator.agregar(filas.toArray(new Transaction[0]), propias);
     }
     
     public void realizarTransferencia(String cuentaOrigen, String cuentaDestino, 
             double cantidad, String concepto, TransferenciaCallback callback) {
-        new Thread(() -> {
+        realizarTransferencia(cuentaOrigen, cuentaDestino, cantidad, concepto, 
+                null, callback);
+    }
+    
+    /**
+     * Como {@link #realizarTransferencia(String, String, double, String, 
+     * TransferenciaCallback)}, pero con una clave de idempotencia: las 
+     * solicitudes repetidas con la misma clave (doble clic, reintentos) no se 
+     * ejecutan de nuevo, sino que reciben el resultado de la primera, esté 
+     * aún en curso o ya terminada.
+     */
+    public void realizarTransferencia(String cuentaOrigen, String cuentaDestino, 
+            double cantidad, String concepto, String claveIdempotencia, 
+            TransferenciaCallback callback) {
+        
+        if (claveIdempotencia == null) {
+            ejecutarTransferenciaAsync(cuentaOrigen, cuentaDestino, cantidad, 
+                    concepto, null, callback);
+            return;
+        }
+        String huella = cuentaOrigen + '|' + cuentaDestino + '|' 
+                + Double.doubleToLongBits(cantidad) + '|' + concepto;
+        IdempotencyCache.Registro registro = idempotencia.registrar(
+                claveIdempotencia, huella);
+        IdempotencyCache.Entrada entrada = registro.entrada();
+        
+        if (!entrada.coincide(huella)) {
+            callback.onError("La solicitud no coincide con la original");
+            return;
+        }
+        entrada.alCompletar(e -> {
+            
+            if (e.isExito()) {
+                callback.onSuccess(e.getMensaje());
+            } else {
+                callback.onError(e.getMensaje());
+            }
+        });
+        
+        if (!registro.nueva()) {
+            LOGGER.log(Level.INFO, "Transferencia duplicada descartada: {0}", 
+                    claveIdempotencia);
+            return;
+        }
+        ejecutarTransferenciaAsync(cuentaOrigen, cuentaDestino, cantidad, 
+                concepto, entrada, new TransferenciaCallback() {
+            @Override
+            public void onSuccess(String mensaje) {
+                entrada.completar(true, mensaje);
+            }
+
+            @Override
+            public void onError(String error) {
+                entrada.completar(false, error);
+            }
+        });
+    }
+    
+    // "entrada" solo se usa para descartar la clave si la transferencia no 
+    // llega a ejecutarse
+    private void ejecutarTransferenciaAsync(String cuentaOrigen, 
+            String cuentaDestino, double cantidad, String concepto, 
+            IdempotencyCache.Entrada entrada, TransferenciaCallback callback) {
+        Deadline plazo = Deadline.deRed();
+        Consumer<String> exito = plazo.unaVez(callback::onSuccess);
+        Consumer<String> error = plazo.unaVez(callback::onError);
+        
+        ejecutarAsync("realizarTransferencia", 
+                ThreadPoolManager.Bulkhead.TRANSFERENCIAS, plazo, () -> {
             
             try {
                 Thread.sleep(1200);
                 
-                // Validar fondos suficientes
-                Account cuenta = cuentas.stream()
-                    .filter(c -> c.getNumeroCuenta().equals(cuentaOrigen))
-                    .findFirst().orElse(null);
+                // Una vez asentada, la transferencia ya no se cancela
+                if (!plazo.comprometer()) {
+                    return;
+                }
+                ledgerLock.readLock().lock();
+                try {
+                    ejecutarTransferencia(cuentaOrigen, cuentaDestino, 
+                            cantidad, concepto);
+                } finally {
+                    ledgerLock.readLock().unlock();
+                }
+                confirmarDurable(
+                        () -> exito.accept("Transferencia realizada con éxito"), 
+                        error);
+            } catch (BankingException e) {
+                LOGGER.log(Level.WARNING, "Transferencia rechazada: {0}", 
+                        e.getMessage());
+                error.accept(e.getUserFriendlyMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                
+                if (entrada != null) {
+                    idempotencia.descartar(entrada);
+                }
+                error.accept("Error al realizar la transferencia");
+            } catch (RuntimeException e) {
+                // Un fallo inesperado también debe cerrar la operación: sin 
+                // callback la clave quedaría abierta hasta su caducidad
+                LOGGER.log(Level.SEVERE, "Error inesperado en la transferencia", 
+                        e);
                 
-                if (cuenta != null && cuenta.getSaldo() >= cantidad) {
-                    // Actualizar saldo
-                    cuenta.setSaldo(cuenta.getSaldo() - cantidad);
-                    
-                    // Crear transacción
-                    String id = "T" + System.currentTimeMillis();
-                    Transaction nuevaTransaccion = new Transaction(id, 
-                            cuentaOrigen, cuentaDestino, cantidad, 
-                            Transaction.TipoTransaccion.TRANSFERENCIA, concepto);
-                    transacciones.add(0, nuevaTransaccion);
-                    
-                    callback.onSuccess("Transferencia realizada con éxito");
-                } else {
-                    callback.onError("Fondos insuficientes");
+                if (entrada != null) {
+                    idempotencia.descartar(entrada);
+                }
+                error.accept("Error al realizar la transferencia");
+            }
+        }, mensaje -> {
+            
+            if (entrada != null) {
+                idempotencia.descartar(entrada);
+            }
+            callback.onError(mensaje);
+        });
+    }
+    
+    /**
+     * Valida, asienta y registra un lote de transferencias en una sola pasada:
+     * una única latencia simulada, un solo recorrido bajo el lock del libro
+     * mayor y una sola confirmación durable para todo el lote. Cada fila se 
+     * resuelve de forma independiente; el callback recibe un resultado por 
+     * solicitud, en el mismo orden.
+     */
+    public void realizarTransferenciasBatch(List<TransferRequest> solicitudes, 
+            LoteCallback callback) {
+        Deadline plazo = Deadline.deRed();
+        Consumer<List<TransferResult>> exito = plazo.unaVez(callback::onSuccess);
+        Consumer<String> error = plazo.unaVez(callback::onError);
+        
+        ejecutarAsync("realizarTransferenciasBatch", 
+                ThreadPoolManager.Bulkhead.LOTES, plazo, () -> {
+            
+            try {
+                Thread.sleep(1200);
+                List<TransferResult> resultados = 
+                        new ArrayList<>(solicitudes.size());
+                int fallidas = 0;
+                
+                if (!plazo.comprometer()) {
+                    return;
                 }
+                ledgerLock.readLock().lock();
+                try {
+                    for (int i = 0; i < solicitudes.size(); i++) {
+                        TransferRequest solicitud = solicitudes.get(i);
+                        
+                        try {
+                            Transaction t = ejecutarTransferencia(
+                                    solicitud.getCuentaOrigen(), 
+                                    solicitud.getCuentaDestino(), 
+                                    solicitud.getCantidad(), 
+                                    solicitud.getConcepto());
+                            resultados.add(TransferResult.exito(i, t.getId()));
+                        } catch (BankingException e) {
+                            resultados.add(TransferResult.fallo(i, e));
+                            fallidas++;
+                        }
+                    }
+                } finally {
+                    ledgerLock.readLock().unlock();
+                }
+                LOGGER.log(Level.INFO, "Lote de transferencias procesado: {0} "
+                        + "correctas, {1} rechazadas", 
+                        new Object[]{solicitudes.size() - fallidas, fallidas});
+                confirmarDurable(() -> exito.accept(resultados), error);
             } catch (InterruptedException e) {
-                callback.onError("Error al realizar la transferencia");
+                Thread.currentThread().interrupt();
+                error.accept("Error al procesar el lote de transferencias");
+            }
+        }, callback::onError);
+    }
+    
+    // Debe llamarse con el lock de lectura del libro mayor tomado
+    private Transaction ejecutarTransferencia(String cuentaOrigen, 
+            String cuentaDestino, double cantidad, String concepto) 
+            throws BankingException {
+        
+        if (cuentaDestino == null || cuentaDestino.trim().isEmpty()) {
+            throw new ValidationException("cuentaDestino", 
+                    "Ingrese la cuenta de destino");
+        }
+        if (Double.isNaN(cantidad) || Double.isInfinite(cantidad)) {
+            throw new ValidationException("cantidad", "Ingrese una cantidad válida");
+        }
+        // El importe se pasa a céntimos en la frontera del servicio
+        Money importe;
+
+        try {
+            importe = Money.deEuros(cantidad);
+        } catch (ArithmeticException e) {
+            throw new ValidationException("cantidad",
+                    "La cantidad excede el máximo permitido");
+        }
+        Account origen = buscarCuenta(cuentaOrigen);
+        
+        if (origen == null) {
+            throw new AccountNotFoundException(cuentaOrigen);
+        }
+        // Una cuenta destino que no está en el índice es externa al banco
+        Account destino = buscarCuenta(cuentaDestino);
+        
+        // Crear transacción
+        Transaction nuevaTransaccion = new Transaction(idGenerator.siguiente(), 
+                cuentaOrigen, cuentaDestino, importe, 
+                Transaction.TipoTransaccion.TRANSFERENCIA, concepto);
+        
+        // El asiento se escribe en el diario antes de aplicar los saldos. El 
+        // historial se actualiza dentro de la sección exclusiva del motor 
+        // (locks de ambas cuentas o hilo escritor) para que su orden coincida 
+        // con el de los asientos
+        ledger.transferir(origen, destino, importe, () -> {
+            
+            if (journal != null) {
+                journal.registrarTransaccion(nuevaTransaccion, true);
+            }
+            anexarTransaccion(nuevaTransaccion);
+        });
+        return nuevaTransaccion;
+    }
+    
+    // La confirmación se completa cuando el registro del diario es durable; 
+    // con group commit varias operaciones comparten el mismo force a disco
+    private void confirmarDurable(Runnable confirmado, 
+            Consumer<String> fallido) {
+        
+        if (groupCommitter == null) {
+            confirmado.run();
+            return;
+        }
+        groupCommitter.alConfirmar(new GroupCommitter.Pendiente() {
+            @Override
+            public void confirmado() {
+                confirmado.run();
             }
-        }).start();
+            
+            @Override
+            public void fallido(BankingException error) {
+                fallido.accept(error.getUserFriendlyMessage());
+            }
+        });
     }
     
     public interface CuentasCallback {
@@ -110,8 +994,23 @@ public class BankingService {
         void onError(String error);
     }
     
+    public interface MovimientosCallback {
+        void onSuccess(TransactionPage pagina);
+        void onError(String error);
+    }
+    
+    public interface TotalesCallback {
+        void onSuccess(TransactionAggregator.Totales totales);
+        void onError(String error);
+    }
+    
     public interface TransferenciaCallback {
         void onSuccess(String mensaje);
         void onError(String error);
     }
+    
+    public interface LoteCallback {
+        void onSuccess(java.util.List<TransferResult> resultados);
+        void onError(String error);
+    }
 }
@@ -0,0 +1,207 @@
+package services;
+
+import config.ConfigurationManager;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cortocircuito de una operación contra el backend.
+ *
+ * Cerrado, deja pasar las llamadas y guarda el resultado de las últimas
+ * {@code ventana} en un anillo: fallida, lenta (más de {@code lentaMs}) o
+ * correcta. Cuando hay al menos {@code minimoLlamadas} y la tasa de fallos o
+ * la de llamadas lentas alcanza su umbral, se abre: durante
+ * {@code abiertoMs} las llamadas se rechazan al momento, sin ocupar hilos ni
+ * esperar la latencia del backend. Pasado ese tiempo pasa a semiabierto y
+ * deja pasar {@code pruebas} llamadas; si sus tasas quedan por debajo de los
+ * umbrales se cierra y, si no, vuelve a abrirse.
+ *
+ * Cada permiso lleva la generación del estado en que se concedió, que cambia
+ * con cada transición; un resultado solo cuenta si llega en la misma
+ * generación. Así una llamada admitida cerrado que termina ya en semiabierto
+ * no pasa por prueba ni consume las de ese estado.
+ *
+ * Los cambios de estado se registran en el log del servicio que lo usa.
+ */
+public class CircuitBreaker {
+
+    public enum Estado { CERRADO, ABIERTO, SEMIABIERTO }
+
+    private static final byte CORRECTA = 0;
+    private static final byte FALLIDA = 1;
+    private static final byte LENTA = 2;
+
+    private final String nombre;
+    private final Logger logger;
+    private final int minimoLlamadas;
+    private final int tasaFallos;
+    private final int tasaLentas;
+    private final long lentaNanos;
+    private final long abiertoNanos;
+    private final int pruebas;
+
+    // Estado protegido por el monitor
+    private final byte[] ventana;
+    private int posicion;
+    private int llenas;
+    private int fallidas;
+    private int lentas;
+    private Estado estado = Estado.CERRADO;
+    private long generacion;
+    private long abiertoDesde;
+    // Semiabierto: permisos de prueba repartidos y resultados recibidos
+    private int pruebasConcedidas;
+    private int pruebasRegistradas;
+
+    public CircuitBreaker(String nombre, Logger logger, int ventana,
+            int minimoLlamadas, int tasaFallos, int tasaLentas, long lentaMs,
+            long abiertoMs, int pruebas) {
+
+        if (ventana <= 0 || minimoLlamadas <= 0 || pruebas <= 0
+                || tasaFallos <= 0 || tasaLentas <= 0 || lentaMs <= 0
+                || abiertoMs <= 0) {
+            throw new IllegalArgumentException("Parámetros del cortocircuito "
+                    + nombre + " inválidos");
+        }
+        this.nombre = nombre;
+        this.logger = logger;
+        this.ventana = new byte[ventana];
+        this.minimoLlamadas = Math.min(minimoLlamadas, ventana);
+        this.tasaFallos = tasaFallos;
+        this.tasaLentas = tasaLentas;
+        this.lentaNanos = TimeUnit.MILLISECONDS.toNanos(lentaMs);
+        this.abiertoNanos = TimeUnit.MILLISECONDS.toNanos(abiertoMs);
+        this.pruebas = Math.min(pruebas, ventana);
+    }
+
+    // Cortocircuito con los parámetros de circuitbreaker.* de la configuración
+    public static CircuitBreaker configurado(String nombre, Logger logger) {
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        return new CircuitBreaker(nombre, logger,
+                config.getCircuitBreakerWindowSize(),
+                config.getCircuitBreakerMinimumCalls(),
+                config.getCircuitBreakerFailureRate(),
+                config.getCircuitBreakerSlowCallRate(),
+                config.getCircuitBreakerSlowCallDuration(),
+                config.getCircuitBreakerOpenDuration(),
+                config.getCircuitBreakerHalfOpenCalls());
+    }
+
+    /**
+     * Pide permiso para una llamada; null si se rechaza. El resultado debe
+     * notificarse con {@link #registrar(Permiso, long, boolean)} o, si la
+     * llamada no llega a hacerse, con {@link #liberar(Permiso)}.
+     */
+    public synchronized Permiso permitir() {
+
+        if (estado == Estado.ABIERTO) {
+
+            if (System.nanoTime() - abiertoDesde < abiertoNanos) {
+                return null;
+            }
+            cambiar(Estado.SEMIABIERTO, null);
+        }
+        if (estado == Estado.SEMIABIERTO) {
+
+            if (pruebasConcedidas >= pruebas) {
+                return null;
+            }
+            pruebasConcedidas++;
+        }
+        return new Permiso(estado, generacion);
+    }
+
+    // Devuelve un permiso concedido para una llamada que no se hizo
+    public synchronized void liberar(Permiso permiso) {
+
+        if (permiso.generacion() == generacion
+                && estado == Estado.SEMIABIERTO && pruebasConcedidas > 0) {
+            pruebasConcedidas--;
+        }
+    }
+
+    public synchronized void registrar(Permiso permiso, long nanos,
+            boolean correcta) {
+
+        if (permiso.generacion() != generacion) {
+            // Concedido en un estado anterior: no cuenta para el actual
+            return;
+        }
+        byte resultado = (byte) ((correcta ? CORRECTA : FALLIDA)
+                | (nanos > lentaNanos ? LENTA : CORRECTA));
+        anotar(resultado);
+
+        if (estado == Estado.SEMIABIERTO) {
+            pruebasRegistradas++;
+
+            if (supera()) {
+                abrir();
+            } else if (pruebasRegistradas >= pruebas) {
+                cambiar(Estado.CERRADO, null);
+                vaciar();
+            }
+        } else if (llenas >= minimoLlamadas && supera()) {
+            abrir();
+        }
+    }
+
+    public synchronized Estado getEstado() {
+        return estado;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    private void anotar(byte resultado) {
+
+        if (llenas == ventana.length) {
+            byte saliente = ventana[posicion];
+            fallidas -= saliente & FALLIDA;
+            lentas -= (saliente & LENTA) >> 1;
+        } else {
+            llenas++;
+        }
+        ventana[posicion] = resultado;
+        fallidas += resultado & FALLIDA;
+        lentas += (resultado & LENTA) >> 1;
+        posicion = (posicion + 1) % ventana.length;
+    }
+
+    private boolean supera() {
+        return fallidas * 100 >= tasaFallos * llenas
+                || lentas * 100 >= tasaLentas * llenas;
+    }
+
+    private void abrir() {
+        String motivo = String.format("%d/%d fallidas, %d/%d lentas",
+                fallidas, llenas, lentas, llenas);
+        abiertoDesde = System.nanoTime();
+        cambiar(Estado.ABIERTO, motivo);
+        vaciar();
+    }
+
+    // Cada estado evalúa solo sus propias llamadas
+    private void vaciar() {
+        posicion = 0;
+        llenas = 0;
+        fallidas = 0;
+        lentas = 0;
+        pruebasConcedidas = 0;
+        pruebasRegistradas = 0;
+    }
+
+    private void cambiar(Estado nuevo, String motivo) {
+        Level nivel = nuevo == Estado.ABIERTO ? Level.WARNING : Level.INFO;
+        logger.log(nivel, "Cortocircuito {0}: {1} -> {2}{3}", new Object[]{
+            nombre, estado, nuevo, motivo == null ? "" : " (" + motivo + ")"});
+        estado = nuevo;
+        generacion++;
+    }
+
+
+    // Permiso de una llamada, con el estado en que se concedió
+    public record Permiso(Estado estado, long generacion) {
+    }
+}
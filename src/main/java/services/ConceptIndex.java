@@ -0,0 +1,140 @@
+package services;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import models.Transaction;
+
+/**
+ * Índice invertido incremental sobre el concepto de las transacciones de una
+ * cuenta.
+ *
+ * Los términos se pliegan a minúsculas y sin diacríticos ("Nómina" y "NOMINA"
+ * indexan igual), y el diccionario está ordenado para resolver búsquedas por
+ * prefijo con un subMap. Las listas de apariciones son de solo anexado y se
+ * leen sin bloqueo.
+ */
+public class ConceptIndex {
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern
+            .compile("[^\\p{L}\\p{N}]+");
+
+    private final ConcurrentSkipListMap<String, Postings> terminos =
+            new ConcurrentSkipListMap<>();
+
+    public void indexar(Transaction transaccion) {
+
+        for (String termino : tokenizar(transaccion.getConcepto())) {
+            terminos.computeIfAbsent(termino, k -> new Postings())
+                    .agregar(transaccion);
+        }
+    }
+
+    /**
+     * Transacciones cuyo concepto contiene todos los términos de la consulta.
+     * El último término se trata como prefijo, para búsquedas mientras se
+     * escribe.
+     */
+    public Set<Transaction> buscar(String consulta) {
+        List<String> tokens = new ArrayList<>(tokenizar(consulta));
+
+        if (tokens.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<Transaction> resultado = null;
+
+        for (int i = 0; i < tokens.size(); i++) {
+            boolean prefijo = i == tokens.size() - 1;
+            Set<Transaction> coincidencias = coincidencias(tokens.get(i),
+                    prefijo);
+
+            if (resultado == null) {
+                resultado = coincidencias;
+            } else {
+                resultado.retainAll(coincidencias);
+            }
+            if (resultado.isEmpty()) {
+                break;
+            }
+        }
+        return resultado;
+    }
+
+    private Set<Transaction> coincidencias(String token, boolean prefijo) {
+        Set<Transaction> encontradas = Collections.newSetFromMap(
+                new IdentityHashMap<>());
+
+        if (!prefijo) {
+            Postings p = terminos.get(token);
+
+            if (p != null) {
+                p.copiarEn(encontradas);
+            }
+            return encontradas;
+        }
+        for (Postings p : terminos.subMap(token, true,
+                token + Character.MAX_VALUE, false).values()) {
+            p.copiarEn(encontradas);
+        }
+        return encontradas;
+    }
+
+    public static String normalizar(String texto) {
+        String sinDiacriticos = DIACRITICOS.matcher(
+                Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return sinDiacriticos.toLowerCase(Locale.ROOT);
+    }
+
+    static Set<String> tokenizar(String texto) {
+
+        if (texto == null || texto.isBlank()) {
+            return Collections.emptySet();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+
+        for (String token : SEPARADORES.split(normalizar(texto))) {
+
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+
+    // Lista de apariciones de solo anexado: un único escritor (bajo el lock
+    // del historial de la cuenta) y lectores sin bloqueo
+    private static final class Postings {
+        private volatile Transaction[] elementos = new Transaction[4];
+        private volatile int tamanio;
+
+        void agregar(Transaction t) {
+            Transaction[] actual = elementos;
+            int n = tamanio;
+
+            if (n == actual.length) {
+                actual = Arrays.copyOf(actual, n * 2);
+                elementos = actual;
+            }
+            actual[n] = t;
+            tamanio = n + 1;
+        }
+
+        void copiarEn(Set<Transaction> destino) {
+            int n = tamanio;
+            Transaction[] actual = elementos;
+
+            for (int i = 0; i < n; i++) {
+                destino.add(actual[i]);
+            }
+        }
+    }
+}
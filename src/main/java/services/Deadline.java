@@ -0,0 +1,106 @@
+package services;
+
+import config.ConfigurationManager;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Plazo de una operación asíncrona y guarda de su único resultado.
+ *
+ * El plazo tiene dos tramos, como una llamada de red: {@code esperaMs} para
+ * conseguir hilo (el equivalente al timeout de conexión) y
+ * {@code ejecucionMs} para terminar una vez empezada (el timeout de lectura).
+ * {@link ThreadPoolManager} cancela la operación al vencer cualquiera de los
+ * dos.
+ *
+ * El resultado se entrega una sola vez: lo que llega antes, el resultado de
+ * la tarea o el vencimiento. Las entregas de la tarea deben pasar por
+ * {@link #unaVez(Consumer)} para que, tras el vencimiento, se descarten. Una
+ * tarea que va a hacer cambios que no deben quedar a medias los anuncia con
+ * {@link #comprometer()}; a partir de ahí el plazo ya no la cancela.
+ */
+public final class Deadline {
+    private static final int PENDIENTE = 0;
+    private static final int COMPROMETIDO = 1;
+    private static final int RESUELTO = 2;
+    private static final int VENCIDO = 3;
+
+    private final long esperaMs;
+    private final long ejecucionMs;
+    private final AtomicInteger estado = new AtomicInteger(PENDIENTE);
+
+    public Deadline(long esperaMs, long ejecucionMs) {
+
+        if (esperaMs <= 0 || ejecucionMs <= 0) {
+            throw new IllegalArgumentException("Plazo inválido: espera="
+                    + esperaMs + " ejecución=" + ejecucionMs);
+        }
+        this.esperaMs = esperaMs;
+        this.ejecucionMs = ejecucionMs;
+    }
+
+    /**
+     * Plazo con los timeouts de red configurados
+     * ({@code network.connection.timeout} y {@code network.read.timeout}).
+     */
+    public static Deadline deRed() {
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        return new Deadline(config.getConnectionTimeout(),
+                config.getReadTimeout());
+    }
+
+    public long getEsperaMs() {
+        return esperaMs;
+    }
+
+    public long getEjecucionMs() {
+        return ejecucionMs;
+    }
+
+    /**
+     * Impide que el plazo cancele la operación. Devuelve false si ya había
+     * vencido: la tarea no debe empezar los cambios.
+     */
+    public boolean comprometer() {
+        return estado.compareAndSet(PENDIENTE, COMPROMETIDO)
+                || estado.get() == COMPROMETIDO;
+    }
+
+    /**
+     * Marca el plazo como vencido si la operación no ha entregado resultado
+     * ni se ha comprometido. Solo quien recibe true debe notificar el
+     * vencimiento.
+     */
+    public boolean vencer() {
+        return estado.compareAndSet(PENDIENTE, VENCIDO);
+    }
+
+    // Con resultado ya entregado o vencida
+    public boolean isResuelto() {
+        return estado.get() >= RESUELTO;
+    }
+
+    public boolean isVencido() {
+        return estado.get() == VENCIDO;
+    }
+
+    /**
+     * Envuelve {@code entrega} para que solo se ejecute si la operación aún
+     * no tiene resultado. Todas las entregas de una operación comparten la
+     * guarda, así que solo la primera llega al destino.
+     */
+    public <T> Consumer<T> unaVez(Consumer<T> entrega) {
+        return valor -> {
+            int actual;
+
+            do {
+                actual = estado.get();
+
+                if (actual >= RESUELTO) {
+                    return;
+                }
+            } while (!estado.compareAndSet(actual, RESUELTO));
+            entrega.accept(valor);
+        };
+    }
+}
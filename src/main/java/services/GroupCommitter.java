@@ -0,0 +1,175 @@
+package services;
+
+import exceptions.BankingException;
+import exceptions.ServerException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Confirmación en grupo (group commit) de los registros del diario.
+ *
+ * Las operaciones ya anexadas al diario encolan aquí su confirmación. Un
+ * único hilo agrupa las pendientes durante una ventana de tiempo o hasta
+ * completar un lote, fuerza el diario a disco una sola vez y completa todas
+ * las confirmaciones del lote. Ventanas más largas y lotes más grandes dan
+ * más rendimiento a costa de latencia.
+ */
+public class GroupCommitter implements AutoCloseable {
+    private static final Logger LOGGER = Logger
+            .getLogger(GroupCommitter.class.getName());
+    private static final long IDLE_POLL_MS = 100;
+
+    private final TransactionJournal journal;
+    private final long windowNanos;
+    private final int batchSize;
+    private final BlockingQueue<Pendiente> pendientes =
+            new LinkedBlockingQueue<>();
+    private final Thread committer;
+    private volatile boolean running = true;
+
+    public GroupCommitter(TransactionJournal journal, long windowMs,
+            int batchSize) {
+
+        if (windowMs < 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Parámetros de group commit "
+                    + "inválidos: ventana=" + windowMs + " lote=" + batchSize);
+        }
+        this.journal = journal;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.batchSize = batchSize;
+        this.committer = new Thread(this::run, "BankingApp-GroupCommit");
+        this.committer.setDaemon(true);
+        this.committer.start();
+        LOGGER.log(Level.INFO, "Group commit iniciado: ventana {0} ms, "
+                + "lote {1}", new Object[]{windowMs, batchSize});
+    }
+
+    /**
+     * Encola la confirmación de un registro ya anexado al diario. Se invoca
+     * {@link Pendiente#confirmado()} cuando el registro es durable.
+     */
+    public void alConfirmar(Pendiente pendiente) {
+
+        if (!running) {
+            pendiente.fallido(new ServerException("El diario está cerrado",
+                    null));
+            return;
+        }
+        pendientes.add(pendiente);
+
+        // Si close() llegó entre la comprobación y el encolado, el hilo puede
+        // haber vaciado la cola y terminado ya. Quien consiga retirarla de la
+        // cola la completa: este hilo o el de confirmación, nunca ambos
+        if (!running && pendientes.remove(pendiente)) {
+            pendiente.fallido(new ServerException("El diario está cerrado",
+                    null));
+        }
+    }
+
+    private void run() {
+        List<Pendiente> lote = new ArrayList<>(batchSize);
+
+        while (running || !pendientes.isEmpty()) {
+
+            try {
+                Pendiente primero = pendientes.poll(IDLE_POLL_MS,
+                        TimeUnit.MILLISECONDS);
+
+                if (primero == null) {
+                    continue;
+                }
+                lote.add(primero);
+                recolectar(lote);
+                confirmar(lote);
+            } catch (InterruptedException e) {
+                // close() interrumpe para no esperar la ventana completa
+                pendientes.drainTo(lote);
+                confirmar(lote);
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void recolectar(List<Pendiente> lote) throws InterruptedException {
+        long limite = System.nanoTime() + windowNanos;
+
+        while (lote.size() < batchSize) {
+            long restante = limite - System.nanoTime();
+            Pendiente siguiente = restante > 0
+                    ? pendientes.poll(restante, TimeUnit.NANOSECONDS)
+                    : pendientes.poll();
+
+            if (siguiente == null) {
+                break;
+            }
+            lote.add(siguiente);
+        }
+    }
+
+    private void confirmar(List<Pendiente> lote) {
+
+        if (lote.isEmpty()) {
+            return;
+        }
+        ServerException error = null;
+
+        try {
+            journal.force();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Error forzando el diario a disco", e);
+            error = new ServerException("No se pudo confirmar la operación en "
+                    + "disco", e);
+        }
+        for (Pendiente pendiente : lote) {
+
+            try {
+                if (error == null) {
+                    pendiente.confirmado();
+                } else {
+                    pendiente.fallido(error);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Error completando una confirmación", e);
+            }
+        }
+        LOGGER.log(Level.FINE, "Lote confirmado: {0} operaciones", lote.size());
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        committer.interrupt();
+
+        try {
+            committer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Lo que siga en la cola (p. ej. si el hilo no terminó a tiempo) se
+        // falla en lugar de dejar a su llamante esperando
+        List<Pendiente> restantes = new ArrayList<>();
+        pendientes.drainTo(restantes);
+
+        for (Pendiente pendiente : restantes) {
+
+            try {
+                pendiente.fallido(new ServerException("El diario está cerrado",
+                        null));
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Error completando una confirmación", e);
+            }
+        }
+    }
+
+
+    public interface Pendiente {
+        void confirmado();
+        void fallido(BankingException error);
+    }
+}
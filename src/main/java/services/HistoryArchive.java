@@ -0,0 +1,191 @@
+package services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import models.Money;
+import models.Transaction;
+
+/**
+ * Archivo compacto del historial de transacciones ya cubierto por una
+ * instantánea.
+ *
+ * Es un único fichero de solo anexado formado por bloques, uno por
+ * instantánea, con las transacciones de los segmentos del diario que esa
+ * instantánea permite borrar: [int transacciones][long bytes][datos]
+ * [long crc32c]. Solo guarda lo que necesita el historial (sin cuentas ni
+ * registros de saldo), así que ocupa bastante menos que los segmentos, que
+ * se mapean con tamaño fijo.
+ *
+ * La longitud válida la decide la instantánea que referencia el fichero: lo
+ * escrito más allá (un bloque de una instantánea que no llegó a completarse)
+ * se descarta antes de anexar el siguiente y nunca se lee.
+ */
+public class HistoryArchive {
+    private static final int CABECERA_BLOQUE = 12;
+
+    private final Path fichero;
+
+    public HistoryArchive(Path fichero) {
+        this.fichero = fichero;
+    }
+
+    /**
+     * Anexa tras {@code longitud} un bloque con las transacciones que entrega
+     * {@code origen}, lo fuerza a disco y devuelve la nueva longitud válida.
+     * Sin transacciones no se escribe nada.
+     */
+    public long anexar(long longitud, Origen origen) throws IOException {
+
+        try (FileChannel canal = FileChannel.open(fichero,
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            canal.truncate(longitud);
+            canal.position(longitud + CABECERA_BLOQUE);
+
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(canal),
+                            64 * 1024), new CRC32C());
+            DataOutputStream out = new DataOutputStream(checked);
+            int[] transacciones = {0};
+
+            try {
+                origen.volcar(t -> {
+                    try {
+                        escribir(out, t);
+                        transacciones[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+
+            if (transacciones[0] == 0) {
+                canal.truncate(longitud);
+                return longitud;
+            }
+            long bytes = canal.position() - longitud - CABECERA_BLOQUE;
+            ByteBuffer crc = ByteBuffer.allocate(Long.BYTES)
+                    .putLong(checked.getChecksum().getValue()).flip();
+
+            while (crc.hasRemaining()) {
+                canal.write(crc);
+            }
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA_BLOQUE)
+                    .putInt(transacciones[0]).putLong(bytes).flip();
+
+            while (cabecera.hasRemaining()) {
+                canal.write(cabecera, longitud + CABECERA_BLOQUE
+                        - cabecera.remaining());
+            }
+            canal.force(true);
+            return longitud + CABECERA_BLOQUE + bytes + Long.BYTES;
+        }
+    }
+
+    /**
+     * Entrega en orden las transacciones de los primeros {@code longitud}
+     * bytes y devuelve cuántas eran.
+     */
+    public int leer(long longitud, Consumer<Transaction> accion)
+            throws IOException {
+
+        if (longitud == 0) {
+            return 0;
+        }
+        int total = 0;
+
+        try (InputStream fichero = new BufferedInputStream(
+                Files.newInputStream(this.fichero), 64 * 1024)) {
+            DataInputStream cabecera = new DataInputStream(fichero);
+            long leidos = 0;
+
+            while (leidos < longitud) {
+                int transacciones = cabecera.readInt();
+                long bytes = cabecera.readLong();
+                CheckedInputStream checked = new CheckedInputStream(fichero,
+                        new CRC32C());
+                DataInputStream in = new DataInputStream(checked);
+
+                for (int i = 0; i < transacciones; i++) {
+                    accion.accept(leer(in));
+                }
+                if (cabecera.readLong() != checked.getChecksum().getValue()) {
+                    throw new IOException("CRC del historial incorrecto en la "
+                            + "posición " + leidos);
+                }
+                total += transacciones;
+                leidos += CABECERA_BLOQUE + bytes + Long.BYTES;
+            }
+        }
+        return total;
+    }
+
+    private static void escribir(DataOutputStream out, Transaction t)
+            throws IOException {
+        boolean idNumerico = t.getIdNumerico() >= 0;
+
+        out.writeBoolean(idNumerico);
+        if (idNumerico) {
+            out.writeLong(t.getIdNumerico());
+        } else {
+            LedgerSnapshotter.escribirTexto(out, t.getId());
+        }
+        LedgerSnapshotter.escribirTexto(out, t.getCuentaOrigen());
+        LedgerSnapshotter.escribirTexto(out, t.getCuentaDestino());
+        out.writeLong(t.getCantidadCentimos());
+        out.writeByte(t.getTipo().ordinal());
+        out.writeLong(t.getFecha().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(t.getFecha().getNano());
+        LedgerSnapshotter.escribirTexto(out, t.getConcepto());
+    }
+
+    private static Transaction leer(DataInputStream in) throws IOException {
+        Transaction t = in.readBoolean()
+                ? new Transaction(in.readLong(),
+                        LedgerSnapshotter.leerTexto(in),
+                        LedgerSnapshotter.leerTexto(in),
+                        Money.deCentimos(in.readLong()),
+                        Transaction.TipoTransaccion.values()[
+                                in.readUnsignedByte()], null)
+                : new Transaction(LedgerSnapshotter.leerTexto(in),
+                        LedgerSnapshotter.leerTexto(in),
+                        LedgerSnapshotter.leerTexto(in),
+                        Money.deCentimos(in.readLong()),
+                        Transaction.TipoTransaccion.values()[
+                                in.readUnsignedByte()], null);
+        t.setFecha(LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(),
+                ZoneOffset.UTC));
+        t.setConcepto(LedgerSnapshotter.leerTexto(in));
+        return t;
+    }
+
+
+    /**
+     * Fuente de las transacciones de un bloque; las entrega en orden a
+     * {@code destino}.
+     */
+    @FunctionalInterface
+    public interface Origen {
+        void volcar(Consumer<Transaction> destino) throws IOException;
+    }
+}
@@ -0,0 +1,179 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Caché acotada y con caducidad de claves de idempotencia.
+ *
+ * La primera solicitud con una clave la registra y ejecuta la operación; las
+ * que llegan con la misma clave mientras sigue en curso se enganchan a su
+ * resultado en lugar de ejecutarla otra vez, y las posteriores reciben el
+ * resultado guardado hasta que caduca. Cada clave guarda además una huella de
+ * los datos de la solicitud para detectar una clave reutilizada con datos
+ * distintos.
+ *
+ * Las claves caducan por orden de llegada (el TTL es el mismo para todas),
+ * así que basta una cola FIFO para purgarlas. Las entradas en curso nunca
+ * caducan ni se expulsan por capacidad: hacerlo permitiría ejecutar dos veces
+ * la misma operación.
+ */
+public class IdempotencyCache {
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+    private final Queue<Entrada> porLlegada = new ConcurrentLinkedQueue<>();
+    private final int capacidad;
+    private final long ttlNanos;
+
+    public IdempotencyCache(int capacidad, long ttlMs) {
+
+        if (capacidad <= 0 || ttlMs <= 0) {
+            throw new IllegalArgumentException("Parámetros de idempotencia "
+                    + "inválidos: capacidad=" + capacidad + " ttl=" + ttlMs);
+        }
+        this.capacidad = capacidad;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    }
+
+    /**
+     * Devuelve la entrada de la clave, creándola si no existe o ha caducado.
+     * Solo quien recibe un registro con {@link Registro#nueva()} debe
+     * ejecutar la operación.
+     */
+    public Registro registrar(String clave, String huella) {
+        purgar();
+        long ahora = System.nanoTime();
+
+        for (;;) {
+            Entrada nueva = new Entrada(clave, huella, ahora);
+            Entrada actual = entradas.putIfAbsent(clave, nueva);
+
+            if (actual == null) {
+                porLlegada.add(nueva);
+                return new Registro(nueva, true);
+            }
+            if (!actual.completada() || !actual.caducada(ahora)) {
+                return new Registro(actual, false);
+            }
+            entradas.remove(clave, actual);
+        }
+    }
+
+    /**
+     * Olvida la entrada, para operaciones que no llegaron a ejecutarse y
+     * pueden reintentarse con la misma clave.
+     */
+    public void descartar(Entrada entrada) {
+        // Es un camino de error poco frecuente: el recorrido de la cola no 
+        // afecta a las solicitudes normales
+        if (entradas.remove(entrada.clave, entrada)) {
+            porLlegada.remove(entrada);
+        }
+    }
+
+    public int tamanio() {
+        return entradas.size();
+    }
+
+    private void purgar() {
+        long ahora = System.nanoTime();
+        Entrada cabeza;
+
+        while ((cabeza = porLlegada.peek()) != null) {
+
+            // Restos de una entrada ya sustituida o descartada: se retiran 
+            // sin tocar la que ahora ocupa la clave
+            if (entradas.get(cabeza.clave) != cabeza) {
+                porLlegada.remove(cabeza);
+                continue;
+            }
+            if (!cabeza.completada() || (!cabeza.caducada(ahora)
+                    && entradas.size() <= capacidad)) {
+                break;
+            }
+            if (porLlegada.remove(cabeza)) {
+                entradas.remove(cabeza.clave, cabeza);
+            }
+        }
+    }
+
+
+    public record Registro(Entrada entrada, boolean nueva) {
+    }
+
+
+    public final class Entrada {
+        private final String clave;
+        private final String huella;
+        private final long creada;
+        // Resultado y oyentes pendientes, protegidos por el monitor
+        private Boolean exito;
+        private String mensaje;
+        private List<Consumer<Entrada>> oyentes = new ArrayList<>(1);
+
+        private Entrada(String clave, String huella, long creada) {
+            this.clave = clave;
+            this.huella = huella;
+            this.creada = creada;
+        }
+
+        public boolean coincide(String otraHuella) {
+            return huella.equals(otraHuella);
+        }
+
+        /**
+         * Ejecuta {@code oyente} con el resultado en cuanto esté disponible,
+         * en el hilo que lo completa o, si ya lo está, en el actual.
+         */
+        public void alCompletar(Consumer<Entrada> oyente) {
+
+            synchronized (this) {
+
+                if (exito == null) {
+                    oyentes.add(oyente);
+                    return;
+                }
+            }
+            oyente.accept(this);
+        }
+
+        public void completar(boolean exito, String mensaje) {
+            List<Consumer<Entrada>> pendientes;
+
+            synchronized (this) {
+
+                if (this.exito != null) {
+                    return;
+                }
+                this.exito = exito;
+                this.mensaje = mensaje;
+                pendientes = oyentes;
+                oyentes = null;
+            }
+            for (Consumer<Entrada> oyente : pendientes) {
+                oyente.accept(this);
+            }
+        }
+
+        public synchronized boolean isExito() {
+            return Boolean.TRUE.equals(exito);
+        }
+
+        public synchronized String getMensaje() {
+            return mensaje;
+        }
+
+        private synchronized boolean completada() {
+            return exito != null;
+        }
+
+        private boolean caducada(long ahora) {
+            return ahora - creada > ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias de bajo coste, en nanosegundos.
+ *
+ * Usa cubetas log-lineales: cada potencia de dos se divide en 8 cubetas
+ * iguales, así que el error relativo de un percentil es como mucho del 12,5 %
+ * con un array fijo de 488 contadores para todo el rango de long. Registrar
+ * es un cálculo de bits y un incremento atómico, sin bloqueos ni reserva de
+ * memoria; los resúmenes se calculan al pedirlos y son aproximados si hay
+ * registros concurrentes.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(BUCKETS);
+    private final LongAdder numero = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    public void registrar(long nanos) {
+        long valor = Math.max(0, nanos);
+        cubetas.incrementAndGet(indice(valor));
+        numero.increment();
+        suma.add(valor);
+
+        long actual;
+
+        while (valor > (actual = maximo.get())
+                && !maximo.compareAndSet(actual, valor)) {
+            // reintentar
+        }
+    }
+
+    public Resumen resumen() {
+        long total = 0;
+        long[] copia = new long[BUCKETS];
+
+        for (int i = 0; i < BUCKETS; i++) {
+            copia[i] = cubetas.get(i);
+            total += copia[i];
+        }
+        long max = maximo.get();
+        return new Resumen(total, total == 0 ? 0 : suma.sum() / total,
+                percentil(copia, total, 0.50, max),
+                percentil(copia, total, 0.90, max),
+                percentil(copia, total, 0.99, max),
+                percentil(copia, total, 0.999, max), max);
+    }
+
+    private static long percentil(long[] copia, long total, double p,
+            long max) {
+
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(total * p));
+        long acumulado = 0;
+
+        for (int i = 0; i < copia.length; i++) {
+            acumulado += copia[i];
+
+            if (acumulado >= objetivo) {
+                return Math.min(limiteSuperior(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int indice(long valor) {
+
+        if (valor < SUB) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int sub = (int) (valor >>> (exponente - SUB_BITS)) & (SUB - 1);
+        return (exponente - SUB_BITS + 1) * SUB + sub;
+    }
+
+    // Mayor valor que cae en la cubeta
+    static long limiteSuperior(int indice) {
+
+        if (indice < SUB) {
+            return indice;
+        }
+        int exponente = indice / SUB + SUB_BITS - 1;
+        int sub = indice % SUB;
+        long base = (long) (SUB + sub + 1) << (exponente - SUB_BITS);
+        return base - 1 < 0 ? Long.MAX_VALUE : base - 1;
+    }
+
+
+    public record Resumen(long numero, long media, long p50, long p90,
+            long p99, long p999, long max) {
+
+        @Override
+        public String toString() {
+            return "n=" + numero + " media=" + ms(media) + " p50=" + ms(p50)
+                    + " p90=" + ms(p90) + " p99=" + ms(p99) + " p99.9="
+                    + ms(p999) + " max=" + ms(max);
+        }
+
+        private static String ms(long nanos) {
+            return TimeUnit.NANOSECONDS.toMillis(nanos) + "ms";
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package services;
+
+import exceptions.BankingException;
+import models.Account;
+import models.Money;
+
+/**
+ * Motor que aplica las transferencias sobre los saldos. Hay dos
+ * implementaciones, seleccionables con {@code ledger.mode}: con locks por
+ * franjas ({@link PostingEngine}) y con un único escritor alimentado por un
+ * buffer circular ({@link RingBufferLedger}).
+ */
+public interface LedgerEngine extends AutoCloseable {
+
+    /**
+     * Adeuda {@code importe} en {@code origen} y lo abona en {@code destino}
+     * (null si es externa). {@code registro} se invoca después de validar el
+     * saldo y antes de modificarlo; si falla, la transferencia no se aplica.
+     */
+    void transferir(Account origen, Account destino, Money importe,
+            PostingEngine.Registro registro) throws BankingException;
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,337 @@
+package services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import models.Account;
+import models.Money;
+import models.Transaction;
+
+/**
+ * Instantáneas periódicas de los saldos del libro mayor.
+ *
+ * Cada instantánea es una imagen binaria de los saldos de todas las cuentas
+ * tomada en un punto consistente, junto con el primer segmento del diario
+ * que NO cubre y un punto de control del índice de transacciones (cuántas
+ * había y el último id). Las transacciones de los segmentos que cubre se
+ * anexan a un {@link HistoryArchive} compacto, la instantánea guarda hasta
+ * dónde es válido y después esos segmentos se borran. Al arrancar se cargan
+ * los saldos, el archivo reconstruye el historial y solo se reproducen los
+ * segmentos posteriores. Cada instantánea escribe los saldos y las
+ * transacciones nuevas desde la anterior, no el historial completo.
+ */
+public class LedgerSnapshotter implements AutoCloseable {
+    private static final Logger LOGGER = Logger
+            .getLogger(LedgerSnapshotter.class.getName());
+
+    private static final int MAGIC = 0x42414E4B; // "BANK"
+    // v4: saldos, punto de control y longitud válida del archivo de historial
+    private static final int VERSION = 4;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final String HISTORIAL = "historial.bin";
+
+    private final Path directorio;
+    private final TransactionJournal journal;
+    private final Captura captura;
+    private final ScheduledExecutorService scheduler;
+    private final HistoryArchive historial;
+    private long ultimaInstantanea = -1L;
+    // Bytes del archivo de historial que referencia la última instantánea
+    private long historialValido;
+
+    public LedgerSnapshotter(Path directorio, TransactionJournal journal,
+            Captura captura) {
+        this.directorio = directorio;
+        this.journal = journal;
+        this.captura = captura;
+        this.historial = new HistoryArchive(directorio.resolve(HISTORIAL));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "BankingApp-Snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void iniciar(long intervaloMs) {
+
+        if (intervaloMs <= 0) {
+            LOGGER.info("Instantáneas periódicas deshabilitadas");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::snapshotSilencioso, intervaloMs,
+                intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void snapshotSilencioso() {
+
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Error generando instantánea", e);
+        }
+    }
+
+    /**
+     * Toma una instantánea, archiva el historial de los segmentos que cubre,
+     * la escribe de forma atómica y borra esos segmentos del diario.
+     */
+    public synchronized void snapshot() throws IOException {
+
+        if (journal.sinCambiosDesde(ultimaInstantanea)) {
+            LOGGER.fine("Sin cambios desde la última instantánea");
+            return;
+        }
+        long inicio = System.nanoTime();
+        Imagen imagen = captura.capturar();
+        // Los segmentos anteriores a la última instantánea ya están archivados
+        long longitud = historial.anexar(historialValido, destino ->
+                journal.recuperar(new SoloTransacciones(destino),
+                        Math.max(ultimaInstantanea, 0L), imagen.segmento()));
+        Path destino = ruta(imagen.segmento());
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+
+        try (OutputStream fichero = Files.newOutputStream(temporal)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(fichero, 64 * 1024), new CRC32C());
+            DataOutputStream out = new DataOutputStream(checked);
+            escribir(out, imagen, longitud);
+            out.flush();
+            // El CRC final cubre todo lo anterior
+            new DataOutputStream(fichero).writeLong(
+                    checked.getChecksum().getValue());
+        }
+        try (FileChannel canal = FileChannel.open(temporal,
+                StandardOpenOption.WRITE)) {
+            canal.force(true);
+        }
+        Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        ultimaInstantanea = imagen.segmento();
+        historialValido = longitud;
+        eliminarInstantaneasAnteriores(imagen.segmento());
+        int eliminados = journal.eliminarSegmentosAnteriores(
+                imagen.segmento());
+        LOGGER.log(Level.INFO, "Instantánea {0} escrita en {1} ms: {2} cuentas, "
+                + "punto de control en {3} transacciones, {4} segmentos "
+                + "archivados", new Object[]{imagen.segmento(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio),
+                    imagen.cuentas().size(), imagen.transacciones(),
+                    eliminados});
+    }
+
+    /**
+     * Carga la instantánea válida más reciente, o null si no hay ninguna.
+     */
+    public synchronized Imagen cargarUltima() throws IOException {
+        List<Long> disponibles = listar();
+
+        for (int i = disponibles.size() - 1; i >= 0; i--) {
+            Path fichero = ruta(disponibles.get(i));
+
+            try {
+                Cargada cargada = leer(fichero);
+                ultimaInstantanea = cargada.imagen().segmento();
+                historialValido = cargada.historial();
+                return cargada.imagen();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Instantánea no válida, se ignora: "
+                        + fichero, e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Entrega en orden las transacciones archivadas hasta la instantánea
+     * cargada por {@link #cargarUltima()} y devuelve cuántas eran.
+     */
+    public synchronized int cargarHistorial(Consumer<Transaction> accion)
+            throws IOException {
+        return historial.leer(historialValido, accion);
+    }
+
+    private static void escribir(DataOutputStream out, Imagen imagen,
+            long historial) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(imagen.segmento());
+        out.writeInt(imagen.transacciones());
+        out.writeLong(imagen.ultimoId());
+        out.writeLong(historial);
+        out.writeInt(imagen.cuentas().size());
+
+        for (CuentaImagen c : imagen.cuentas()) {
+            escribirTexto(out, c.numeroCuenta());
+            escribirTexto(out, c.userId());
+            out.writeByte(c.tipo().ordinal());
+            out.writeLong(c.saldoCentimos());
+        }
+    }
+
+    private static Cargada leer(Path fichero) throws IOException {
+
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(fichero),
+                        64 * 1024), new CRC32C())) {
+            DataInputStream in = new DataInputStream(checked);
+
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Cabecera de instantánea desconocida");
+            }
+            long segmento = in.readLong();
+            int transacciones = in.readInt();
+            long ultimoId = in.readLong();
+            long historial = in.readLong();
+            int numCuentas = in.readInt();
+            List<CuentaImagen> cuentas = new ArrayList<>(numCuentas);
+
+            for (int i = 0; i < numCuentas; i++) {
+                cuentas.add(new CuentaImagen(leerTexto(in), leerTexto(in),
+                        Account.TipoCuenta.values()[in.readUnsignedByte()],
+                        in.readLong()));
+            }
+            long calculado = checked.getChecksum().getValue();
+
+            if (new DataInputStream(checked).readLong() != calculado) {
+                throw new IOException("CRC de instantánea incorrecto");
+            }
+            return new Cargada(new Imagen(segmento, transacciones, ultimoId,
+                    cuentas), historial);
+        }
+    }
+
+    static void escribirTexto(DataOutputStream out, String s)
+            throws IOException {
+
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    static String leerTexto(DataInputStream in) throws IOException {
+        int len = in.readInt();
+
+        if (len < 0) {
+            return null;
+        }
+        return new String(in.readNBytes(len), StandardCharsets.UTF_8);
+    }
+
+    private void eliminarInstantaneasAnteriores(long segmento)
+            throws IOException {
+
+        for (long s : listar()) {
+
+            if (s < segmento) {
+                Files.deleteIfExists(ruta(s));
+            }
+        }
+    }
+
+    private Path ruta(long segmento) {
+        return directorio.resolve(String.format("%s%016d%s", PREFIX, segmento,
+                SUFFIX));
+    }
+
+    private List<Long> listar() throws IOException {
+        List<Long> instantaneas = new ArrayList<>();
+
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            ficheros.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(PREFIX) && n.endsWith(SUFFIX))
+                    .map(n -> Long.parseLong(n.substring(PREFIX.length(),
+                            n.length() - SUFFIX.length())))
+                    .sorted()
+                    .forEach(instantaneas::add);
+        }
+        return instantaneas;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+
+    /**
+     * Captura el estado en un punto consistente. Debe rotar el diario para que
+     * los registros posteriores a la captura caigan en segmentos nuevos.
+     */
+    @FunctionalInterface
+    public interface Captura {
+        Imagen capturar() throws IOException;
+    }
+
+
+    public record CuentaImagen(String numeroCuenta, String userId,
+            Account.TipoCuenta tipo, long saldoCentimos) {
+    }
+
+
+    /**
+     * Estado capturado: {@code segmento} es el primer segmento del diario
+     * cuyos registros no están incluidos en la imagen; {@code transacciones}
+     * es el número de transacciones registradas en los segmentos anteriores y
+     * {@code ultimoId} el último id numérico emitido (-1 si ninguno).
+     */
+    public record Imagen(long segmento, int transacciones, long ultimoId,
+            List<CuentaImagen> cuentas) {
+    }
+
+
+    private record Cargada(Imagen imagen, long historial) {
+    }
+
+
+    // Los segmentos ya cubiertos solo aportan sus transacciones al archivo
+    private static final class SoloTransacciones
+            implements TransactionJournal.Visitor {
+        private final Consumer<Transaction> destino;
+
+        SoloTransacciones(Consumer<Transaction> destino) {
+            this.destino = destino;
+        }
+
+        @Override
+        public void onCuenta(String numeroCuenta, String userId,
+                Account.TipoCuenta tipo, Money saldo) {
+        }
+
+        @Override
+        public void onCuentaEliminada(String numeroCuenta) {
+        }
+
+        @Override
+        public void onTransaccion(Transaction transaccion,
+                boolean aplicaSaldos) {
+            destino.accept(transaccion);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package services;
+
+import exceptions.BankingException;
+import exceptions.InsufficientFundsException;
+import exceptions.ValidationException;
+import java.util.concurrent.locks.ReentrantLock;
+import models.Account;
+import models.Money;
+
+/**
+ * Motor de asientos de doble entrada. Cada transferencia adeuda la cuenta
+ * origen y abona la cuenta destino de forma atómica bajo los locks de ambas.
+ *
+ * Los locks están repartidos en franjas (striping) por número de cuenta y se
+ * adquieren siempre en orden ascendente de franja, por lo que dos
+ * transferencias nunca pueden bloquearse mutuamente y las que afectan a pares
+ * de cuentas disjuntos se ejecutan en paralelo.
+ */
+public class PostingEngine implements LedgerEngine {
+    private static final int DEFAULT_STRIPES = 1024;
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public PostingEngine() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public PostingEngine(int numStripes) {
+
+        if (numStripes <= 0 || Integer.bitCount(numStripes) != 1) {
+            throw new IllegalArgumentException("El número de franjas debe ser "
+                    + "potencia de dos: " + numStripes);
+        }
+        this.stripes = new ReentrantLock[numStripes];
+
+        for (int i = 0; i < numStripes; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = numStripes - 1;
+    }
+
+    /**
+     * Adeuda {@code importe} en {@code origen} y lo abona en {@code destino}.
+     * Si {@code destino} es null la cuenta destino es externa al banco y solo
+     * se registra el cargo. {@code registro} se invoca con los locks tomados,
+     * después de validar el saldo y antes de modificarlo; si falla, la
+     * transferencia no se aplica.
+     */
+    @Override
+    public void transferir(Account origen, Account destino, Money importe,
+            Registro registro) throws BankingException {
+        long cantidad = importe.getCentimos();
+
+        if (cantidad <= 0) {
+            throw new ValidationException("cantidad",
+                    "La cantidad debe ser mayor a 0");
+        }
+        if (origen == destino) {
+            throw new ValidationException("cuentaDestino",
+                    "La cuenta destino debe ser distinta de la de origen");
+        }
+        int stripeOrigen = stripeFor(origen);
+        int stripeDestino = destino != null ? stripeFor(destino) : stripeOrigen;
+        ReentrantLock primero = stripes[Math.min(stripeOrigen, stripeDestino)];
+        ReentrantLock segundo = stripes[Math.max(stripeOrigen, stripeDestino)];
+
+        primero.lock();
+        try {
+
+            if (segundo != primero) {
+                segundo.lock();
+            }
+            try {
+                long saldo = origen.getSaldoCentimos();
+
+                if (saldo < cantidad) {
+                    throw new InsufficientFundsException(
+                            Money.deCentimos(saldo), importe);
+                }
+                registro.escribir();
+                origen.setSaldoCentimos(saldo - cantidad);
+
+                if (destino != null) {
+                    destino.setSaldoCentimos(Math.addExact(
+                            destino.getSaldoCentimos(), cantidad));
+                }
+            } finally {
+
+                if (segundo != primero) {
+                    segundo.unlock();
+                }
+            }
+        } finally {
+            primero.unlock();
+        }
+    }
+
+    @FunctionalInterface
+    public interface Registro {
+        void escribir() throws BankingException;
+    }
+
+    private int stripeFor(Account cuenta) {
+        int h = cuenta.getNumeroCuenta().hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
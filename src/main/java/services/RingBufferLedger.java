@@ -0,0 +1,237 @@
+package services;
+
+import exceptions.BankingException;
+import exceptions.InsufficientFundsException;
+import exceptions.ServerException;
+import exceptions.ValidationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import models.Account;
+import models.Money;
+
+/**
+ * Libro mayor de un único escritor alimentado por un buffer circular, al
+ * estilo del Disruptor de LMAX.
+ *
+ * Los productores reservan una secuencia con un contador atómico, rellenan el
+ * evento preasignado de esa posición y lo publican en un array de
+ * disponibilidad. Un solo hilo consume las secuencias en orden y aplica las
+ * transferencias sin locks: como es el único que modifica saldos, comprobar
+ * el saldo, registrar el asiento y aplicarlo es atómico por construcción. Los
+ * eventos se reutilizan, por lo que el escritor no reserva memoria por
+ * transferencia. Si el anillo está lleno, los productores esperan a que el
+ * escritor libere posiciones.
+ */
+public class RingBufferLedger implements LedgerEngine {
+    private static final Logger LOGGER = Logger
+            .getLogger(RingBufferLedger.class.getName());
+    private static final int SPIN_TRIES = 200;
+    private static final long PARK_NANOS = 50_000;
+
+    private final Evento[] eventos;
+    private final AtomicLongArray publicados;
+    private final int mask;
+    private final AtomicLong siguiente = new AtomicLong();
+    // Última secuencia aplicada por el escritor; limita a los productores
+    private final AtomicLong procesado = new AtomicLong(-1);
+    private final Thread escritor;
+    private volatile boolean running = true;
+
+    public RingBufferLedger(int capacidad) {
+
+        if (capacidad <= 0 || Integer.bitCount(capacidad) != 1) {
+            throw new IllegalArgumentException("La capacidad del anillo debe "
+                    + "ser potencia de dos: " + capacidad);
+        }
+        this.eventos = new Evento[capacidad];
+        this.publicados = new AtomicLongArray(capacidad);
+
+        for (int i = 0; i < capacidad; i++) {
+            eventos[i] = new Evento();
+            publicados.set(i, -1);
+        }
+        this.mask = capacidad - 1;
+        this.escritor = new Thread(this::consumir, "BankingApp-Ledger");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Encola la transferencia y devuelve un futuro que se completa cuando el
+     * escritor la ha aplicado, o de forma excepcional con la
+     * BankingException que la rechazó.
+     */
+    public CompletableFuture<Void> enviar(Account origen, Account destino,
+            Money importe, PostingEngine.Registro registro)
+            throws ValidationException, ServerException {
+
+        if (importe.getCentimos() <= 0) {
+            throw new ValidationException("cantidad",
+                    "La cantidad debe ser mayor a 0");
+        }
+        if (origen == destino) {
+            throw new ValidationException("cuentaDestino",
+                    "La cuenta destino debe ser distinta de la de origen");
+        }
+        if (!running) {
+            throw detenido();
+        }
+        CompletableFuture<Void> resultado = new CompletableFuture<>();
+        long secuencia = siguiente.getAndIncrement();
+        long envolvente = secuencia - eventos.length;
+
+        while (envolvente > procesado.get()) {
+
+            if (!escritor.isAlive()) {
+                resultado.completeExceptionally(detenido());
+                return resultado;
+            }
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        Evento e = eventos[(int) secuencia & mask];
+        e.origen = origen;
+        e.destino = destino;
+        e.cantidad = importe.getCentimos();
+        e.registro = registro;
+        e.resultado = resultado;
+        publicados.set((int) secuencia & mask, secuencia);
+
+        // Si se cerró entre la comprobación de arriba y la reserva, el
+        // escritor puede haber terminado sin ver esta secuencia: se espera a
+        // que acabe y, si no la aplicó, se falla el futuro
+        if (!running) {
+            esperarEscritor();
+            resultado.completeExceptionally(detenido());
+        }
+        return resultado;
+    }
+
+    private static ServerException detenido() {
+        return new ServerException("El libro mayor está detenido", null);
+    }
+
+    @Override
+    public void transferir(Account origen, Account destino, Money importe,
+            PostingEngine.Registro registro) throws BankingException {
+
+        try {
+            enviar(origen, destino, importe, registro).join();
+        } catch (CompletionException e) {
+
+            if (e.getCause() instanceof BankingException be) {
+                throw be;
+            }
+            throw new ServerException("Error aplicando la transferencia",
+                    e.getCause());
+        }
+    }
+
+    private void consumir() {
+        long secuencia = 0;
+
+        while (running || secuencia < siguiente.get()) {
+            int indice = (int) secuencia & mask;
+
+            if (!esperarPublicacion(indice, secuencia)) {
+                continue;
+            }
+            Evento e = eventos[indice];
+            CompletableFuture<Void> resultado = e.resultado;
+            Throwable error = aplicar(e);
+            e.limpiar();
+            procesado.lazySet(secuencia);
+            secuencia++;
+
+            if (error == null) {
+                resultado.complete(null);
+            } else {
+                resultado.completeExceptionally(error);
+            }
+        }
+    }
+
+    // Espera activa breve y después aparcada; false si hay que reevaluar la
+    // condición de parada
+    private boolean esperarPublicacion(int indice, long secuencia) {
+
+        for (int i = 0; publicados.get(indice) != secuencia; i++) {
+
+            if (!running && secuencia >= siguiente.get()) {
+                return false;
+            }
+            if (i < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+        return true;
+    }
+
+    private static Throwable aplicar(Evento e) {
+
+        try {
+            long saldo = e.origen.getSaldoCentimos();
+
+            if (saldo < e.cantidad) {
+                return new InsufficientFundsException(Money.deCentimos(saldo),
+                        Money.deCentimos(e.cantidad));
+            }
+            e.registro.escribir();
+            e.origen.setSaldoCentimos(saldo - e.cantidad);
+
+            if (e.destino != null) {
+                e.destino.setSaldoCentimos(Math.addExact(
+                        e.destino.getSaldoCentimos(), e.cantidad));
+            }
+            return null;
+        } catch (BankingException | RuntimeException ex) {
+            LOGGER.log(Level.FINE, "Transferencia rechazada por el libro mayor",
+                    ex);
+            return ex;
+        }
+    }
+
+    /**
+     * Deja de aceptar transferencias; las ya encoladas se aplican antes de
+     * que termine el escritor.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(escritor);
+        esperarEscritor();
+    }
+
+    private void esperarEscritor() {
+
+        try {
+            escritor.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    // Posición preasignada del anillo; solo la escribe el productor que ha
+    // reservado su secuencia y solo la lee el escritor tras la publicación
+    private static final class Evento {
+        private Account origen;
+        private Account destino;
+        private long cantidad;
+        private PostingEngine.Registro registro;
+        private CompletableFuture<Void> resultado;
+
+        void limpiar() {
+            origen = null;
+            destino = null;
+            registro = null;
+            resultado = null;
+        }
+    }
+}
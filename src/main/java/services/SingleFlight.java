@@ -0,0 +1,113 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Agrupa solicitudes idénticas en curso ("single flight").
+ *
+ * La primera solicitud de una clave se convierte en el vuelo y es la única
+ * que llega al backend; las que llegan con la misma clave mientras sigue en
+ * curso se suman a él y reciben su mismo resultado. Al completarse, el vuelo
+ * sale del mapa antes de entregar el resultado, así que una solicitud
+ * posterior ya lanza uno nuevo y nunca recibe datos anteriores a ella.
+ */
+public class SingleFlight<T> {
+    private final Map<String, Vuelo> enCurso = new ConcurrentHashMap<>();
+    private final LongAdder lanzadas = new LongAdder();
+    private final LongAdder ahorradas = new LongAdder();
+
+    /**
+     * Suma los oyentes al vuelo en curso de {@code clave} o crea uno. Devuelve
+     * el vuelo nuevo, que quien llama debe lanzar y completar, o null si se
+     * ha sumado a uno existente.
+     */
+    public Vuelo unirse(String clave, Consumer<T> exito,
+            Consumer<String> error) {
+
+        for (;;) {
+            Vuelo nuevo = new Vuelo(clave);
+            Vuelo actual = enCurso.putIfAbsent(clave, nuevo);
+
+            if (actual == null) {
+                nuevo.sumar(exito, error);
+                lanzadas.increment();
+                return nuevo;
+            }
+            if (actual.sumar(exito, error)) {
+                ahorradas.increment();
+                return null;
+            }
+            // Se estaba completando; ya ha salido o saldrá del mapa
+            enCurso.remove(clave, actual);
+        }
+    }
+
+    public long getLanzadas() {
+        return lanzadas.sum();
+    }
+
+    // Solicitudes servidas por un vuelo ajeno: llamadas al backend ahorradas
+    public long getAhorradas() {
+        return ahorradas.sum();
+    }
+
+
+    public final class Vuelo {
+        private final String clave;
+        // Oyentes protegidos por el monitor; null una vez completado
+        private List<Consumer<T>> exitos = new ArrayList<>(1);
+        private List<Consumer<String>> errores = new ArrayList<>(1);
+
+        private Vuelo(String clave) {
+            this.clave = clave;
+        }
+
+        private synchronized boolean sumar(Consumer<T> exito,
+                Consumer<String> error) {
+
+            if (exitos == null) {
+                return false;
+            }
+            exitos.add(exito);
+            errores.add(error);
+            return true;
+        }
+
+        public void completar(T resultado) {
+
+            for (Consumer<T> oyente : cerrar().exitos) {
+                oyente.accept(resultado);
+            }
+        }
+
+        public void fallar(String mensaje) {
+
+            for (Consumer<String> oyente : cerrar().errores) {
+                oyente.accept(mensaje);
+            }
+        }
+
+        private Oyentes<T> cerrar() {
+            enCurso.remove(clave, this);
+
+            synchronized (this) {
+                Oyentes<T> oyentes = new Oyentes<>(
+                        exitos == null ? List.of() : exitos,
+                        errores == null ? List.of() : errores);
+                exitos = null;
+                errores = null;
+                return oyentes;
+            }
+        }
+    }
+
+
+    private record Oyentes<T>(List<Consumer<T>> exitos,
+            List<Consumer<String>> errores) {
+    }
+}
@@ -0,0 +1,198 @@
+package services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import models.Account;
+import models.Money;
+import models.Transaction;
+
+/**
+ * Generación de los extractos mensuales de todas las cuentas.
+ *
+ * Parte de un corte consistente del libro mayor (saldo actual y tamaño del
+ * historial de cada cuenta) y reparte las cuentas en un ForkJoinPool. Cada
+ * extracto se calcula solo a partir del historial de su cuenta: el saldo
+ * final del mes es el saldo del corte menos los movimientos posteriores al
+ * mes, y el inicial, el final menos los movimientos del mes. Las cuentas no
+ * comparten estado, por lo que el trabajo escala con los núcleos.
+ */
+public class StatementGenerator {
+    private static final Logger LOGGER = Logger
+            .getLogger(StatementGenerator.class.getName());
+    // Cuentas por tarea hoja: suficiente para amortizar el fork
+    private static final int UMBRAL = 64;
+
+    private final Path directorio;
+    private final YearMonth mes;
+    private final int paralelismo;
+
+    public StatementGenerator(Path directorio, YearMonth mes, int paralelismo) {
+
+        if (paralelismo <= 0) {
+            throw new IllegalArgumentException("Paralelismo inválido: "
+                    + paralelismo);
+        }
+        this.directorio = directorio.resolve(mes.toString());
+        this.mes = mes;
+        this.paralelismo = paralelismo;
+    }
+
+    public Resultado generar(List<Corte> cortes) throws IOException {
+        Files.createDirectories(directorio);
+        long inicio = System.nanoTime();
+        int generados;
+
+        try (ForkJoinPool pool = new ForkJoinPool(paralelismo)) {
+            generados = pool.invoke(new Tramo(cortes, 0, cortes.size()));
+        }
+        Resultado resultado = new Resultado(generados,
+                cortes.size() - generados, System.nanoTime() - inicio);
+        LOGGER.log(Level.INFO, "Extractos de {0}: {1} generados, {2} con "
+                + "error en {3} ms ({4} cuentas/s, {5} hilos)",
+                new Object[]{mes, resultado.generados(), resultado.fallidos(),
+                    TimeUnit.NANOSECONDS.toMillis(resultado.nanos()),
+                    Math.round(resultado.cuentasPorSegundo()), paralelismo});
+        return resultado;
+    }
+
+    // Devuelve true si el extracto se escribió
+    private boolean generar(Corte corte) {
+        LocalDateTime inicioMes = mes.atDay(1).atStartOfDay();
+        LocalDateTime finMes = mes.plusMonths(1).atDay(1).atStartOfDay();
+        List<Transaction> movimientos = new ArrayList<>();
+        long[] posteriores = new long[1];
+
+        if (corte.historial() != null) {
+            corte.historial().recorrer(inicioMes, corte.tamanio(), t -> {
+
+                if (t.getFecha().isBefore(finMes)) {
+                    movimientos.add(t);
+                } else {
+                    posteriores[0] += efecto(t, corte.numeroCuenta());
+                }
+            });
+        }
+        long saldoFinal = corte.saldoCentimos() - posteriores[0];
+        long saldoInicial = saldoFinal;
+
+        for (Transaction t : movimientos) {
+            saldoInicial -= efecto(t, corte.numeroCuenta());
+        }
+        Path fichero = directorio.resolve(
+                corte.numeroCuenta().replace(" ", "") + ".txt");
+
+        try (BufferedWriter out = Files.newBufferedWriter(fichero,
+                StandardCharsets.UTF_8)) {
+            escribir(out, corte, saldoInicial, movimientos, saldoFinal);
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error escribiendo el extracto de "
+                    + corte.numeroCuenta(), e);
+            return false;
+        }
+    }
+
+    private void escribir(BufferedWriter out, Corte corte, long saldoInicial,
+            List<Transaction> movimientos, long saldoFinal) throws IOException {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("Extracto de la cuenta ").append(corte.numeroCuenta())
+                .append(" (").append(corte.tipo()).append(")\n")
+                .append("Periodo: ").append(mes).append("\n\n")
+                .append("Saldo inicial: ")
+                .append(Money.formatear(saldoInicial)).append("\n\n");
+        out.append(sb);
+
+        for (Transaction t : movimientos) {
+            sb.setLength(0);
+            sb.append(t.getFecha().toLocalDate()).append("  ")
+                    .append(t.getId()).append("  ")
+                    .append(t.getTipo()).append("  ");
+
+            if (t.getConcepto() != null) {
+                sb.append(t.getConcepto()).append("  ");
+            }
+            Money.appendTo(sb, efecto(t, corte.numeroCuenta())).append(" €\n");
+            out.append(sb);
+        }
+        sb.setLength(0);
+        sb.append("\nMovimientos: ").append(movimientos.size())
+                .append("\nSaldo final: ").append(Money.formatear(saldoFinal))
+                .append('\n');
+        out.append(sb);
+    }
+
+    // Efecto del movimiento sobre el saldo de la cuenta, en céntimos
+    private static long efecto(Transaction t, String numeroCuenta) {
+
+        if (numeroCuenta.equals(t.getCuentaDestino())) {
+            return t.getCantidadCentimos();
+        }
+        return numeroCuenta.equals(t.getCuentaOrigen())
+                ? -t.getCantidadCentimos() : 0L;
+    }
+
+
+    private final class Tramo extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<Corte> cortes;
+        private final int desde;
+        private final int hasta;
+
+        Tramo(List<Corte> cortes, int desde, int hasta) {
+            this.cortes = cortes;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected Integer compute() {
+
+            if (hasta - desde <= UMBRAL) {
+                int generados = 0;
+
+                for (int i = desde; i < hasta; i++) {
+
+                    if (generar(cortes.get(i))) {
+                        generados++;
+                    }
+                }
+                return generados;
+            }
+            int medio = (desde + hasta) >>> 1;
+            Tramo izquierda = new Tramo(cortes, desde, medio);
+            izquierda.fork();
+            int derecha = new Tramo(cortes, medio, hasta).compute();
+            return derecha + izquierda.join();
+        }
+    }
+
+
+    /**
+     * Estado de una cuenta fijado en el corte: {@code tamanio} es el número
+     * de movimientos del historial que pertenecen al corte.
+     */
+    public record Corte(String numeroCuenta, Account.TipoCuenta tipo,
+            long saldoCentimos, AccountHistory historial, int tamanio) {
+    }
+
+
+    public record Resultado(int generados, int fallidos, long nanos) {
+
+        public double cuentasPorSegundo() {
+            return nanos == 0 ? 0 : (generados + fallidos) * 1e9 / nanos;
+        }
+    }
+}
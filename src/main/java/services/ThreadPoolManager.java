@@ -1,9 +1,32 @@
 package services;
 
+import config.ConfigurationManager;
+import exceptions.BankingException;
+import exceptions.NetworkException;
+import exceptions.ServerException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -13,35 +36,180 @@ public class ThreadPoolManager {
     private static final Logger LOGGER = Logger
             .getLogger(ThreadPoolManager.class.getName());
     private static ThreadPoolManager instance;
-    private final ExecutorService executorService;
+
+    /**
+     * Compartimentos estancos (bulkheads): cada tipo de trabajo tiene su
+     * propio pool y su propia cola acotada, de modo que una avalancha de un
+     * tipo (por ejemplo, lotes) no deja sin hilos a los demás.
+     */
+    public enum Bulkhead {
+        AUTH, TRANSFERENCIAS, CONSULTAS, LOTES;
+
+        public String nombre() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Map<Bulkhead, Compartimento> compartimentos =
+            new EnumMap<>(Bulkhead.class);
+    // Solo en modo virtual: ejecutor compartido de un hilo virtual por tarea
+    private final ExecutorService virtuales;
+    // Esperas entre reintentos, vencimiento de plazos y volcado periódico
+    // de estadísticas; no ejecuta tareas, solo las reenvía a los pools
+    private final ScheduledThreadPoolExecutor programador;
 
     private ThreadPoolManager() {
-        // Usar un pool de hilos optimizado para operaciones I/O
-        this.executorService = Executors.newFixedThreadPool(
-                Runtime.getRuntime().availableProcessors() * 2,
-                r -> {
-                    Thread t = new Thread(r, "BankingApp-Worker");
-                    t.setDaemon(true); // Permitir que la JVM termine aunque estos hilos estén ejecutándose
-                    return t;
-                }
-        );
+        this(ConfigurationManager.THREADPOOL_MODE_VIRTUAL.equals(
+                ConfigurationManager.getInstance().getThreadPoolMode()));
+    }
+
+    // Con el modo fijado, para comparar ambos en el mismo proceso
+    ThreadPoolManager(boolean virtual) {
+        ConfigurationManager config = ConfigurationManager.getInstance();
+        AtomicInteger hilosVirtuales = new AtomicInteger();
+
+        if (virtual) {
+            // Un hilo virtual por tarea: las esperas bloqueantes no ocupan
+            // hilos de plataforma
+            ThreadFactory fabrica = Thread.ofVirtual()
+                    .name("BankingApp-Virtual-", 0).factory();
+            this.virtuales = Executors.newThreadPerTaskExecutor(r -> {
+                hilosVirtuales.incrementAndGet();
+                return fabrica.newThread(r);
+            });
+        } else {
+            this.virtuales = null;
+        }
+        for (Bulkhead b : Bulkhead.values()) {
+            int tamanio = config.getBulkheadSize(b.nombre());
+            int capacidadCola = config.getBulkheadQueueCapacity(b.nombre());
+            compartimentos.put(b, virtual
+                    ? new Compartimento(b, tamanio + capacidadCola, virtuales,
+                            hilosVirtuales)
+                    : new Compartimento(b, tamanio, capacidadCola,
+                            config.getThreadPoolKeepAlive()));
+            LOGGER.log(Level.INFO, "Compartimento {0}: {1} hilos, cola de {2}{3}",
+                    new Object[]{b, tamanio, capacidadCola,
+                        virtual ? " (hilos virtuales)" : ""});
+        }
+        this.programador = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "BankingApp-Scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        // Casi todos los plazos se cancelan al terminar la tarea; sin esto se
+        // acumularían en la cola hasta su hora
+        this.programador.setRemoveOnCancelPolicy(true);
+        iniciarInforme(config.getThreadPoolMetricsInterval());
         // Registrar shutdown hook para limpieza
         Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
-        LOGGER.info("ThreadPoolManager inicializado con pool de hilos");
+    }
+
+    // Volcado periódico de las estadísticas al log (0 = deshabilitado)
+    private void iniciarInforme(long intervaloMs) {
+
+        if (intervaloMs > 0) {
+            programador.scheduleAtFixedRate(() -> LOGGER.log(Level.INFO,
+                    "Estadísticas de los pools: {0}", getEstadisticas()),
+                    intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+        }
     }
 
     public static synchronized ThreadPoolManager getInstance() {
-        
+
         if (instance == null) {
             instance = new ThreadPoolManager();
         }
         return instance;
     }
 
-    
-    public Future<?> executeAsync(Runnable task) {
-        return executorService.submit(() -> {
-            
+
+    /**
+     * Ejecuta la tarea en el compartimento indicado. Si su cola está llena,
+     * falla de inmediato con ServerException en lugar de esperar.
+     */
+    public Future<?> executeAsync(Bulkhead bulkhead, Runnable task)
+            throws ServerException {
+        return enviar(compartimentos.get(bulkhead), envolver(task));
+    }
+
+
+    /**
+     * Como {@link #executeAsync(Bulkhead, Runnable)}, pero con plazo: si la
+     * tarea no empieza en {@link Deadline#getEsperaMs()} o no termina en
+     * {@link Deadline#getEjecucionMs()} desde que empieza, se cancela (se
+     * saca de la cola o se interrumpe su hilo) y se notifica a
+     * {@code alVencer} con una NetworkException, salvo que ya haya entregado
+     * su resultado o se haya comprometido.
+     */
+    public Future<?> executeAsync(Bulkhead bulkhead, Runnable task,
+            Deadline plazo, Consumer<NetworkException> alVencer)
+            throws ServerException {
+        Compartimento c = compartimentos.get(bulkhead);
+        Vigilada vigilada = new Vigilada(c, envolver(task), plazo, alVencer);
+        vigilada.futuro = enviar(c, vigilada);
+
+        if (!vigilada.iniciada) {
+            vigilada.temporizadorEspera = programador.schedule(
+                    vigilada::vencerEspera, plazo.getEsperaMs(),
+                    TimeUnit.MILLISECONDS);
+        }
+        return vigilada.futuro;
+    }
+
+    /**
+     * Ejecuta la tarea tras el cortocircuito, en el compartimento y con el
+     * plazo indicados, y anota su resultado en el cortocircuito. La tarea
+     * devuelve si el backend respondió correctamente; una excepción cuenta
+     * como fallo, y el vencimiento del plazo como fallo con el tiempo desde
+     * el envío. Si el cortocircuito está abierto o el compartimento
+     * saturado, la tarea no se ejecuta. El rechazo, la saturación y el
+     * vencimiento se notifican a {@code fallo}, que no debe estar guardado
+     * por el plazo (las entregas de la propia tarea sí).
+     */
+    public void executeAsync(Bulkhead bulkhead, CircuitBreaker circuito,
+            Deadline plazo, BooleanSupplier task,
+            Consumer<BankingException> fallo) {
+        CircuitBreaker.Permiso permiso = circuito.permitir();
+
+        if (permiso == null) {
+            fallo.accept(new ServerException("Servicio no disponible "
+                    + "temporalmente. Inténtelo de nuevo en unos segundos",
+                    null));
+            return;
+        }
+        long enviada = System.nanoTime();
+
+        try {
+            executeAsync(bulkhead, () -> {
+                long inicio = System.nanoTime();
+                boolean correcta = false;
+
+                try {
+                    correcta = task.getAsBoolean();
+                } finally {
+                    // Si venció, el fallo ya lo ha registrado el vencimiento
+                    if (!plazo.isVencido()) {
+                        circuito.registrar(permiso,
+                                System.nanoTime() - inicio, correcta);
+                    }
+                }
+            }, plazo, e -> {
+                circuito.registrar(permiso, System.nanoTime() - enviada, false);
+                fallo.accept(e);
+            });
+        } catch (ServerException e) {
+            circuito.liberar(permiso);
+            LOGGER.log(Level.WARNING, "Compartimento {0} saturado, operación "
+                    + "{1} rechazada", new Object[]{bulkhead,
+                        circuito.getNombre()});
+            fallo.accept(e);
+        }
+    }
+
+    private static Runnable envolver(Runnable task) {
+        return () -> {
+
             try {
                 task.run();
             } catch (Exception ex) {
@@ -49,69 +217,439 @@ public class ThreadPoolManager {
                 // Re-lanzar como RuntimeException para que Future.get() la capture
                 throw new RuntimeException("Error en tarea asíncrona", ex);
             }
-        });
+        };
+    }
+
+    private static Future<?> enviar(Compartimento c, Runnable tarea)
+            throws ServerException {
+
+        try {
+            return c.enviar(tarea);
+        } catch (RejectedExecutionException ex) {
+            throw new ServerException("El servicio está ocupado. Inténtelo de "
+                    + "nuevo en unos segundos", ex);
+        }
+    }
+
+
+    /**
+     * Reintenta con espera fija {@code delayMs} y sin plazo máximo. Ver
+     * {@link #executeWithRetry(Bulkhead, Runnable, int, long, long, long)}.
+     */
+    public CompletableFuture<Void> executeWithRetry(Bulkhead bulkhead,
+            Runnable task, int maxRetries, long delayMs) {
+        return executeWithRetry(bulkhead, task, maxRetries, delayMs, delayMs,
+                0);
     }
 
-    
-    public Future<?> executeWithRetry(Runnable task, int maxRetries, 
-            long delayMs) {
-        return executorService.submit(() -> {
-            int attempts = 0;
-            Exception lastException = null;
+    /**
+     * Ejecuta la tarea en el compartimento y, si falla, la reenvía hasta
+     * {@code maxRetries} veces con espera exponencial desde
+     * {@code delayInicialMs} hasta {@code delayMaximoMs}, con jitter. Las
+     * esperas se programan en el planificador, sin ocupar hilos del pool. Si
+     * {@code plazoMs} es mayor que 0, no se programa ningún intento que
+     * empezaría después de ese plazo desde la llamada. Un rechazo por
+     * compartimento lleno cuenta como intento fallido. El futuro se completa
+     * con el primer intento correcto o de forma excepcional con el último
+     * error; cancelarlo detiene los reintentos pendientes.
+     */
+    public CompletableFuture<Void> executeWithRetry(Bulkhead bulkhead,
+            Runnable task, int maxRetries, long delayInicialMs,
+            long delayMaximoMs, long plazoMs) {
+        CompletableFuture<Void> resultado = new CompletableFuture<>();
+        long limite = plazoMs > 0
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(plazoMs)
+                : Long.MAX_VALUE;
+        intentar(new Reintento(compartimentos.get(bulkhead), task, maxRetries,
+                delayInicialMs, Math.max(delayInicialMs, delayMaximoMs),
+                limite, resultado), 1);
+        return resultado;
+    }
+
+    private void intentar(Reintento r, int intento) {
+
+        if (r.resultado().isDone()) {
+            return;
+        }
+        try {
+            r.compartimento().enviar(() -> {
 
-            while (attempts <= maxRetries) {
-                
+                if (r.resultado().isDone()) {
+                    return;
+                }
                 try {
-                    task.run();
-                    return; 
-                } catch (Exception ex) {
-                    lastException = ex;
-                    attempts++;
-
-                    LOGGER.log(Level.WARNING,
-                            String.format("Intento %d/%d falló", attempts, 
-                                    maxRetries + 1), 
-                            ex);
-
-                    if (attempts <= maxRetries) {
-                        
-                        try {
-                            Thread.sleep(delayMs);
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            throw new RuntimeException("Tarea interrumpida", e);
-                        }
-                    }
+                    r.tarea().run();
+                    r.resultado().complete(null);
+                } catch (RuntimeException ex) {
+                    fallo(r, intento, ex);
+                    // Se relanza para que la instrumentación cuente el fallo
+                    throw ex;
                 }
-            }
+            });
+        } catch (RejectedExecutionException ex) {
+            fallo(r, intento, ex);
+        }
+    }
 
-            LOGGER.log(Level.SEVERE, "Todos los reintentos agotados", 
-                    lastException);
-            throw new RuntimeException("Operación falló después de " + 
-                    (maxRetries + 1) + " intentos", lastException);
-        });
+    private void fallo(Reintento r, int intento, RuntimeException ex) {
+        LOGGER.log(Level.WARNING, String.format("Intento %d/%d falló", intento,
+                r.maxReintentos() + 1), ex);
+
+        if (intento > r.maxReintentos()) {
+            agotado(r, intento, ex);
+            return;
+        }
+        // Espera exponencial con "equal jitter": la mitad fija y la otra
+        // mitad aleatoria, para que los fallos simultáneos no se reintenten
+        // a la vez
+        long base = Math.min(r.delayMaximoMs(), r.delayInicialMs()
+                << Math.min(intento - 1, 30));
+        long espera = base / 2 + ThreadLocalRandom.current()
+                .nextLong(base / 2 + 1);
+
+        if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(espera)
+                > r.limite()) {
+            agotado(r, intento, ex);
+            return;
+        }
+        r.compartimento().reintentos.increment();
+
+        try {
+            programador.schedule(() -> intentar(r, intento + 1), espera,
+                    TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            agotado(r, intento, ex);
+        }
+    }
+
+    private void agotado(Reintento r, int intentos, RuntimeException ex) {
+        r.compartimento().reintentosAgotados.increment();
+        LOGGER.log(Level.SEVERE, "Todos los reintentos agotados", ex);
+        r.resultado().completeExceptionally(new RuntimeException(
+                "Operación falló después de " + intentos + " intentos", ex));
+    }
+
+    public boolean isVirtual() {
+        return virtuales != null;
+    }
+
+    public Metricas getMetricas(Bulkhead bulkhead) {
+        return compartimentos.get(bulkhead).metricas();
+    }
+
+
+    /**
+     * Estado actual del compartimento junto con los histogramas de espera en
+     * cola y de ejecución y los contadores acumulados desde el arranque.
+     */
+    public Estadisticas getEstadisticas(Bulkhead bulkhead) {
+        return compartimentos.get(bulkhead).estadisticas();
+    }
+
+
+    public Map<Bulkhead, Estadisticas> getEstadisticas() {
+        Map<Bulkhead, Estadisticas> todas = new EnumMap<>(Bulkhead.class);
+
+        for (Compartimento c : compartimentos.values()) {
+            todas.put(c.bulkhead, c.estadisticas());
+        }
+        return Collections.unmodifiableMap(todas);
     }
 
 
     public void shutdown() {
-        LOGGER.info("Iniciando shutdown del ThreadPoolManager");
-        executorService.shutdown();
+        LOGGER.log(Level.INFO, "Iniciando shutdown del ThreadPoolManager: {0}",
+                getEstadisticas());
 
+        programador.shutdownNow();
+
+        for (Compartimento c : compartimentos.values()) {
+            c.ejecutor.shutdown();
+        }
         try {
-            
-            if (!executorService.awaitTermination(10, TimeUnit.SECONDS)) {
-                LOGGER.warning("Pool no terminó en 10 segundos, forzando shutdown");
-                executorService.shutdownNow();
 
-                if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
-                    LOGGER.severe("Pool no pudo ser terminado completamente");
+            for (Compartimento c : compartimentos.values()) {
+
+                if (!c.ejecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    LOGGER.log(Level.WARNING, "Pool {0} no terminó en 10 "
+                            + "segundos, forzando shutdown", c.bulkhead);
+                    c.ejecutor.shutdownNow();
+
+                    if (!c.ejecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                        LOGGER.log(Level.SEVERE, "Pool {0} no pudo ser "
+                                + "terminado completamente", c.bulkhead);
+                    }
                 }
             }
         } catch (InterruptedException e) {
             LOGGER.log(Level.SEVERE, "Shutdown interrumpido", e);
-            executorService.shutdownNow();
+
+            for (Compartimento c : compartimentos.values()) {
+                c.ejecutor.shutdownNow();
+            }
             Thread.currentThread().interrupt();
         }
         LOGGER.info("ThreadPoolManager shutdown completado");
     }
+
+
+    // Tarea con plazo: un temporizador vigila la espera en cola y, cuando
+    // empieza, otro vigila la ejecución
+    private final class Vigilada implements Runnable {
+        private final Compartimento compartimento;
+        private final Runnable tarea;
+        private final Deadline plazo;
+        private final Consumer<NetworkException> alVencer;
+        private volatile Future<?> futuro;
+        private volatile boolean iniciada;
+        private volatile ScheduledFuture<?> temporizadorEspera;
+        private volatile ScheduledFuture<?> temporizadorEjecucion;
+
+        Vigilada(Compartimento compartimento, Runnable tarea, Deadline plazo,
+                Consumer<NetworkException> alVencer) {
+            this.compartimento = compartimento;
+            this.tarea = tarea;
+            this.plazo = plazo;
+            this.alVencer = alVencer;
+        }
+
+        @Override
+        public void run() {
+            iniciada = true;
+            cancelar(temporizadorEspera);
+
+            if (plazo.isResuelto()) {
+                return;
+            }
+            temporizadorEjecucion = programador.schedule(this::vencerEjecucion,
+                    plazo.getEjecucionMs(), TimeUnit.MILLISECONDS);
+            try {
+                tarea.run();
+            } finally {
+                cancelar(temporizadorEjecucion);
+            }
+        }
+
+        private void vencerEspera() {
+
+            if (!iniciada) {
+                vencer("Sin hilo disponible en " + plazo.getEsperaMs()
+                        + " ms (" + compartimento.bulkhead + ")");
+            }
+        }
+
+        private void vencerEjecucion() {
+            vencer("Sin respuesta en " + plazo.getEjecucionMs() + " ms ("
+                    + compartimento.bulkhead + ")");
+        }
+
+        private void vencer(String motivo) {
+
+            if (!plazo.vencer()) {
+                return;
+            }
+            compartimento.vencidas.increment();
+            Future<?> f = futuro;
+
+            if (f != null) {
+                compartimento.cancelar(f);
+            }
+            NetworkException error = new NetworkException(motivo, null);
+            LOGGER.log(Level.WARNING, "Operación cancelada por plazo: {0}",
+                    motivo);
+            alVencer.accept(error);
+        }
+
+        private void cancelar(ScheduledFuture<?> temporizador) {
+
+            if (temporizador != null) {
+                temporizador.cancel(false);
+            }
+        }
+    }
+
+
+    // Pool, límites e instrumentación de un compartimento
+    private static final class Compartimento {
+        private final Bulkhead bulkhead;
+        private final ExecutorService ejecutor;
+        // Solo en modo plataforma
+        private final ThreadPoolExecutor pool;
+        // Solo en modo virtual: limita las tareas admitidas a la vez
+        private final Semaphore permisos;
+        private final int maxConcurrencia;
+        private final AtomicInteger hilosCreados;
+        private final AtomicLong rechazadas = new AtomicLong();
+        // Instrumentación: tiempo en cola y de ejecución de cada tarea
+        private final LatencyHistogram espera = new LatencyHistogram();
+        private final LatencyHistogram ejecucion = new LatencyHistogram();
+        private final LongAdder completadas = new LongAdder();
+        private final LongAdder fallidas = new LongAdder();
+        private final LongAdder reintentos = new LongAdder();
+        private final LongAdder reintentosAgotados = new LongAdder();
+        private final LongAdder vencidas = new LongAdder();
+
+        // Modo plataforma: pool acotado en hilos y en cola; cuando la cola
+        // se llena la tarea se rechaza en lugar de acumularse
+        Compartimento(Bulkhead bulkhead, int tamanio, int capacidadCola,
+                long keepAliveMs) {
+            this.bulkhead = bulkhead;
+            this.permisos = null;
+            this.maxConcurrencia = tamanio;
+            this.hilosCreados = new AtomicInteger();
+            String prefijo = "BankingApp-" + bulkhead.nombre() + "-";
+            this.pool = new ThreadPoolExecutor(tamanio, tamanio, keepAliveMs,
+                    TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacidadCola),
+                    r -> {
+                        Thread t = new Thread(r, prefijo
+                                + hilosCreados.incrementAndGet());
+                        t.setDaemon(true); // Permitir que la JVM termine aunque estos hilos estén ejecutándose
+                        return t;
+                    },
+                    (r, executor) -> {
+                        rechazadas.incrementAndGet();
+                        throw new RejectedExecutionException("Compartimento "
+                                + bulkhead + " saturado");
+                    });
+            // Los hilos inactivos se liberan pasado el keep-alive
+            this.pool.allowCoreThreadTimeOut(true);
+            this.ejecutor = pool;
+        }
+
+        // Modo virtual: el límite de tareas admitidas sustituye a hilos + cola
+        Compartimento(Bulkhead bulkhead, int maxConcurrencia,
+                ExecutorService virtuales, AtomicInteger hilosVirtuales) {
+            this.bulkhead = bulkhead;
+            this.pool = null;
+            this.permisos = new Semaphore(maxConcurrencia);
+            this.maxConcurrencia = maxConcurrencia;
+            this.hilosCreados = hilosVirtuales;
+            this.ejecutor = virtuales;
+        }
+
+        Future<?> enviar(Runnable tarea) {
+            Runnable medida = medir(tarea);
+
+            if (permisos == null) {
+                return ejecutor.submit(medida);
+            }
+            if (!permisos.tryAcquire()) {
+                rechazadas.incrementAndGet();
+                throw new RejectedExecutionException("Compartimento "
+                        + bulkhead + " saturado");
+            }
+            // done() se llama al terminar o al cancelarse, aunque no llegue
+            // a ejecutarse, así que el permiso se devuelve siempre
+            FutureTask<Void> futuro = new FutureTask<>(medida, null) {
+                @Override
+                protected void done() {
+                    permisos.release();
+                }
+            };
+            try {
+                ejecutor.execute(futuro);
+            } catch (RejectedExecutionException e) {
+                permisos.release();
+                throw e;
+            }
+            return futuro;
+        }
+
+        // Interrumpe la tarea si está en marcha y, si sigue en cola, la saca
+        // para que no ocupe hueco
+        void cancelar(Future<?> futuro) {
+            futuro.cancel(true);
+
+            if (pool != null && futuro instanceof Runnable r) {
+                pool.remove(r);
+            }
+        }
+
+        // Envuelve la tarea para medir su espera en cola (desde el envío
+        // hasta que empieza) y su ejecución, y contar si termina bien o no
+        private Runnable medir(Runnable tarea) {
+            long enviada = System.nanoTime();
+
+            return () -> {
+                long inicio = System.nanoTime();
+                espera.registrar(inicio - enviada);
+                boolean correcta = false;
+
+                try {
+                    tarea.run();
+                    correcta = true;
+                } finally {
+                    ejecucion.registrar(System.nanoTime() - inicio);
+
+                    if (correcta) {
+                        completadas.increment();
+                    } else {
+                        fallidas.increment();
+                    }
+                }
+            };
+        }
+
+        Metricas metricas() {
+
+            if (pool == null) {
+                int activas = maxConcurrencia - permisos.availablePermits();
+                return new Metricas(activas, maxConcurrencia, activas, 0,
+                        permisos.availablePermits(),
+                        completadas.sum() + fallidas.sum(),
+                        rechazadas.get(), hilosCreados.get());
+            }
+            return new Metricas(pool.getPoolSize(), pool.getMaximumPoolSize(),
+                    pool.getActiveCount(), pool.getQueue().size(),
+                    pool.getQueue().remainingCapacity(),
+                    pool.getCompletedTaskCount(), rechazadas.get(),
+                    hilosCreados.get());
+        }
+
+        Estadisticas estadisticas() {
+            return new Estadisticas(metricas(), espera.resumen(),
+                    ejecucion.resumen(), completadas.sum(), fallidas.sum(),
+                    reintentos.sum(), reintentosAgotados.sum(),
+                    vencidas.sum());
+        }
+    }
+
+
+    /**
+     * Estado del pool: hilos vivos y máximo, tareas en ejecución y en cola,
+     * hueco libre en la cola, tareas completadas, tareas rechazadas por
+     * saturación e hilos creados desde el arranque. En modo virtual no hay
+     * cola: los hilos son las tareas en curso y el hueco libre, los permisos
+     * disponibles; los hilos creados se cuentan para todos los compartimentos.
+     */
+    public record Metricas(int hilos, int maxHilos, int activos, int enCola,
+            int colaLibre, long completadas, long rechazadas,
+            int hilosCreados) {
+    }
+
+
+    public record Estadisticas(Metricas pool, LatencyHistogram.Resumen espera,
+            LatencyHistogram.Resumen ejecucion, long completadas,
+            long fallidas, long reintentos, long reintentosAgotados,
+            long vencidas) {
+
+        @Override
+        public String toString() {
+            return "hilos=" + pool.hilos() + "/" + pool.maxHilos()
+                    + " activos=" + pool.activos() + " enCola=" + pool.enCola()
+                    + " rechazadas=" + pool.rechazadas()
+                    + " completadas=" + completadas + " fallidas=" + fallidas
+                    + " reintentos=" + reintentos + " agotados="
+                    + reintentosAgotados + " vencidas=" + vencidas
+                    + " | espera: " + espera
+                    + " | ejecución: " + ejecucion;
+        }
+    }
+
+
+    private record Reintento(Compartimento compartimento, Runnable tarea,
+            int maxReintentos, long delayInicialMs, long delayMaximoMs,
+            long limite, CompletableFuture<Void> resultado) {
+    }
 }
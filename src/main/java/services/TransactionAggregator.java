@@ -0,0 +1,201 @@
+package services;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import models.Transaction;
+
+/**
+ * Totales de transacciones agrupados por tipo, por mes y por cuenta.
+ *
+ * Reparte las filas en tramos sobre un ForkJoinPool; cada tramo acumula en
+ * arrays de long indexados por ordinal del tipo y en mapas cuyas entradas
+ * son long[] mutables, de modo que por fila no se crea ningún objeto. Como el
+ * historial está en orden cronológico, el acumulador del mes se cachea y el
+ * mapa de meses solo se consulta al cambiar de mes. Los tramos se combinan
+ * al final y solo entonces se construyen los objetos del resultado.
+ */
+public class TransactionAggregator {
+    // Filas por tarea hoja
+    private static final int UMBRAL = 16 * 1024;
+    private static final Transaction.TipoTransaccion[] TIPOS =
+            Transaction.TipoTransaccion.values();
+
+    private final ForkJoinPool pool;
+
+    public TransactionAggregator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public TransactionAggregator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Agrega las filas indicadas. Si {@code cuentas} no es null, solo cuentan
+     * las transacciones en las que participa alguna de ellas, y el desglose
+     * por cuenta se limita a esas cuentas.
+     */
+    public Totales agregar(Transaction[] filas, Set<String> cuentas) {
+        Acumulador total = pool.invoke(new Tramo(filas, 0, filas.length,
+                cuentas));
+        return total.resultado();
+    }
+
+
+    private static final class Tramo extends RecursiveTask<Acumulador> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Transaction[] filas;
+        private final int desde;
+        private final int hasta;
+        private final transient Set<String> cuentas;
+
+        Tramo(Transaction[] filas, int desde, int hasta, Set<String> cuentas) {
+            this.filas = filas;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.cuentas = cuentas;
+        }
+
+        @Override
+        protected Acumulador compute() {
+
+            if (hasta - desde <= UMBRAL) {
+                Acumulador acc = new Acumulador();
+
+                for (int i = desde; i < hasta; i++) {
+                    acc.agregar(filas[i], cuentas);
+                }
+                return acc;
+            }
+            int medio = (desde + hasta) >>> 1;
+            Tramo izquierda = new Tramo(filas, desde, medio, cuentas);
+            izquierda.fork();
+            Acumulador derecha = new Tramo(filas, medio, hasta, cuentas)
+                    .compute();
+            return izquierda.join().combinar(derecha);
+        }
+    }
+
+
+    private static final class Acumulador {
+        private final long[] numeroPorTipo = new long[TIPOS.length];
+        private final long[] importePorTipo = new long[TIPOS.length];
+        // mes (año * 12 + mes - 1) -> {número, importe}
+        private final Map<Integer, long[]> porMes = new HashMap<>();
+        // cuenta -> {número, entradas, salidas}
+        private final Map<String, long[]> porCuenta = new HashMap<>();
+        private int mesCache = -1;
+        private long[] accMesCache;
+
+        void agregar(Transaction t, Set<String> cuentas) {
+            String origen = t.getCuentaOrigen();
+            String destino = t.getCuentaDestino();
+            boolean cuentaOrigen = origen != null
+                    && (cuentas == null || cuentas.contains(origen));
+            boolean cuentaDestino = destino != null
+                    && (cuentas == null || cuentas.contains(destino));
+
+            if (cuentas != null && !cuentaOrigen && !cuentaDestino) {
+                return;
+            }
+            long importe = t.getCantidadCentimos();
+            int tipo = t.getTipo().ordinal();
+            numeroPorTipo[tipo]++;
+            importePorTipo[tipo] += importe;
+
+            LocalDateTime fecha = t.getFecha();
+            int mes = fecha.getYear() * 12 + fecha.getMonthValue() - 1;
+
+            if (mes != mesCache) {
+                mesCache = mes;
+                accMesCache = porMes.computeIfAbsent(mes, k -> new long[2]);
+            }
+            accMesCache[0]++;
+            accMesCache[1] += importe;
+
+            if (cuentaOrigen) {
+                long[] c = porCuenta.computeIfAbsent(origen, k -> new long[3]);
+                c[0]++;
+                c[2] += importe;
+            }
+            if (cuentaDestino) {
+                long[] c = porCuenta.computeIfAbsent(destino, k -> new long[3]);
+                c[0]++;
+                c[1] += importe;
+            }
+        }
+
+        Acumulador combinar(Acumulador otro) {
+
+            for (int i = 0; i < TIPOS.length; i++) {
+                numeroPorTipo[i] += otro.numeroPorTipo[i];
+                importePorTipo[i] += otro.importePorTipo[i];
+            }
+            otro.porMes.forEach((mes, v) -> sumar(porMes, mes, v));
+            otro.porCuenta.forEach((cuenta, v) -> sumar(porCuenta, cuenta, v));
+            return this;
+        }
+
+        private static <K> void sumar(Map<K, long[]> destino, K clave,
+                long[] valores) {
+            long[] actual = destino.putIfAbsent(clave, valores);
+
+            if (actual != null) {
+                for (int i = 0; i < actual.length; i++) {
+                    actual[i] += valores[i];
+                }
+            }
+        }
+
+        Totales resultado() {
+            Map<Transaction.TipoTransaccion, Total> tipos = new EnumMap<>(
+                    Transaction.TipoTransaccion.class);
+
+            for (int i = 0; i < TIPOS.length; i++) {
+
+                if (numeroPorTipo[i] > 0) {
+                    tipos.put(TIPOS[i], new Total(numeroPorTipo[i],
+                            importePorTipo[i]));
+                }
+            }
+            SortedMap<YearMonth, Total> meses = new TreeMap<>();
+            porMes.forEach((mes, v) -> meses.put(
+                    YearMonth.of(mes / 12, mes % 12 + 1), new Total(v[0], v[1])));
+            Map<String, TotalCuenta> cuentas = new HashMap<>();
+            porCuenta.forEach((cuenta, v) -> cuentas.put(cuenta,
+                    new TotalCuenta(v[0], v[1], v[2])));
+            return new Totales(Collections.unmodifiableMap(tipos),
+                    Collections.unmodifiableSortedMap(meses),
+                    Collections.unmodifiableMap(cuentas));
+        }
+    }
+
+
+    public record Total(long numero, long importeCentimos) {
+    }
+
+
+    public record TotalCuenta(long numero, long entradasCentimos,
+            long salidasCentimos) {
+
+        public long netoCentimos() {
+            return entradasCentimos - salidasCentimos;
+        }
+    }
+
+
+    public record Totales(Map<Transaction.TipoTransaccion, Total> porTipo,
+            SortedMap<YearMonth, Total> porMes,
+            Map<String, TotalCuenta> porCuenta) {
+    }
+}
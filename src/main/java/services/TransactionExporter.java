@@ -0,0 +1,218 @@
+package services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import models.Money;
+import models.Transaction;
+
+/**
+ * Exporta el historial de una cuenta directamente a un WritableByteChannel.
+ *
+ * Copia el historial por bloques de {@code BLOQUE} filas, sin bloquear los
+ * anexados mientras copia, y serializa cada movimiento en un único ByteBuffer
+ * de tamaño fijo que se vacía al canal cuando se llena, de modo que la
+ * memoria usada no depende del número de filas. En CSV el separador decimal
+ * es siempre '.', sea cual sea el locale.
+ *
+ * Formato binario (big endian): cabecera [int MAGIC][int versión] y por fila
+ * [long segundosUTC][int nanos][byte tipo][long céntimos][str id]
+ * [str origen][str destino][str concepto], con str = [int longitud UTF-8 o -1]
+ * [bytes]. Termina con [long filas].
+ */
+public class TransactionExporter {
+    public static final int BINARY_MAGIC = 0x42545831; // "BTX1"
+    public static final int BINARY_VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int BLOQUE = 4096;
+    private static final String CSV_HEADER =
+            "id;fecha;tipo;origen;destino;importe;concepto\n";
+
+    public enum Formato {
+        CSV, BINARIO
+    }
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    // Con REPLACE el codificador nunca falla: los suplentes sueltos se
+    // sustituyen en lugar de abortar la exportación
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final StringBuilder linea = new StringBuilder(256);
+    private final WritableByteChannel canal;
+    private final Formato formato;
+
+    public TransactionExporter(WritableByteChannel canal, Formato formato) {
+        this.canal = canal;
+        this.formato = formato;
+    }
+
+    /**
+     * Escribe todo el historial en orden cronológico y devuelve el número de
+     * filas exportadas.
+     */
+    public long exportar(AccountHistory historial) throws IOException {
+        cabecera();
+        // Solo se exporta lo que existía al empezar
+        int total = historial.tamanio();
+
+        for (int desde = 0; desde < total; desde += BLOQUE) {
+
+            for (Transaction t : historial.copiar(desde,
+                    Math.min(total, desde + BLOQUE))) {
+                fila(t);
+            }
+        }
+        if (formato == Formato.BINARIO) {
+            asegurar(Long.BYTES);
+            buffer.putLong(total);
+        }
+        vaciar();
+        return total;
+    }
+
+    private void cabecera() throws IOException {
+
+        if (formato == Formato.CSV) {
+            texto(CSV_HEADER);
+        } else {
+            asegurar(2 * Integer.BYTES);
+            buffer.putInt(BINARY_MAGIC).putInt(BINARY_VERSION);
+        }
+    }
+
+    private void fila(Transaction t) throws IOException {
+
+        if (formato == Formato.CSV) {
+            linea.setLength(0);
+            campo(t.getId()).append(';');
+            fecha(t.getFecha()).append(';');
+            linea.append(t.getTipo().name()).append(';');
+            campo(t.getCuentaOrigen()).append(';');
+            campo(t.getCuentaDestino()).append(';');
+            Money.appendTo(linea, t.getCantidadCentimos(), '.').append(';');
+            campo(t.getConcepto()).append('\n');
+            texto(linea);
+            return;
+        }
+        asegurar(Long.BYTES + Integer.BYTES + 1 + Long.BYTES);
+        buffer.putLong(t.getFecha().toEpochSecond(ZoneOffset.UTC))
+                .putInt(t.getFecha().getNano())
+                .put((byte) t.getTipo().ordinal())
+                .putLong(t.getCantidadCentimos());
+        cadena(t.getId());
+        cadena(t.getCuentaOrigen());
+        cadena(t.getCuentaDestino());
+        cadena(t.getConcepto());
+    }
+
+    // Fecha ISO-8601 sin pasar por DateTimeFormatter
+    private StringBuilder fecha(LocalDateTime f) {
+        linea.append(f.getYear()).append('-');
+        dosDigitos(f.getMonthValue()).append('-');
+        dosDigitos(f.getDayOfMonth()).append('T');
+        dosDigitos(f.getHour()).append(':');
+        dosDigitos(f.getMinute()).append(':');
+        return dosDigitos(f.getSecond());
+    }
+
+    private StringBuilder dosDigitos(int v) {
+        return (v < 10 ? linea.append('0') : linea).append(v);
+    }
+
+    // Campo CSV entrecomillado solo si contiene separadores o comillas
+    private StringBuilder campo(String valor) {
+
+        if (valor == null) {
+            return linea;
+        }
+        boolean comillas = valor.indexOf(';') >= 0 || valor.indexOf('"') >= 0
+                || valor.indexOf('\n') >= 0;
+
+        if (!comillas) {
+            return linea.append(valor);
+        }
+        linea.append('"');
+
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+
+            if (c == '"') {
+                linea.append('"');
+            }
+            linea.append(c);
+        }
+        return linea.append('"');
+    }
+
+    private void cadena(String valor) throws IOException {
+
+        if (valor == null) {
+            asegurar(Integer.BYTES);
+            buffer.putInt(-1);
+            return;
+        }
+        // Como mucho 3 bytes UTF-8 por char de la BMP; los pares suplentes
+        // ocupan 4 bytes para 2 chars
+        int maximo = valor.length() * 3;
+
+        if (maximo + Integer.BYTES <= buffer.capacity()) {
+            asegurar(Integer.BYTES + maximo);
+            int posLongitud = buffer.position();
+            buffer.position(posLongitud + Integer.BYTES);
+            codificar(valor);
+            buffer.putInt(posLongitud, buffer.position() - posLongitud
+                    - Integer.BYTES);
+        } else {
+            byte[] utf8 = valor.getBytes(StandardCharsets.UTF_8);
+            asegurar(Integer.BYTES);
+            buffer.putInt(utf8.length);
+            vaciar();
+            canalCompleto(ByteBuffer.wrap(utf8));
+        }
+    }
+
+    private void codificar(CharSequence texto) {
+        encoder.reset();
+        encoder.encode(CharBuffer.wrap(texto), buffer, true);
+        encoder.flush(buffer);
+    }
+
+    private void texto(CharSequence texto) throws IOException {
+        encoder.reset();
+        CharBuffer entrada = CharBuffer.wrap(texto);
+
+        while (encoder.encode(entrada, buffer, true).isOverflow()) {
+            vaciar();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            vaciar();
+        }
+    }
+
+    private void asegurar(int bytes) throws IOException {
+
+        if (buffer.remaining() < bytes) {
+            vaciar();
+        }
+    }
+
+    private void vaciar() throws IOException {
+        buffer.flip();
+        canalCompleto(buffer);
+        buffer.clear();
+    }
+
+    private void canalCompleto(ByteBuffer datos) throws IOException {
+
+        while (datos.hasRemaining()) {
+            canal.write(datos);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de identificadores de transacción de 64 bits sin bloqueos.
+ *
+ * Disposición (de más a menos significativo): 41 bits de milisegundos desde
+ * {@link #EPOCH}, 10 bits de nodo y 12 bits de secuencia. El estado es un
+ * único long atómico con (milisegundo, secuencia) que avanza por CAS: si el
+ * reloj no ha avanzado, o ha retrocedido, se toma el siguiente valor del
+ * último emitido, así que los identificadores son estrictamente crecientes
+ * por nodo. Si en un milisegundo se agotan las 4096 secuencias el estado pasa
+ * al milisegundo siguiente en lugar de esperar, pero nunca se adelanta al
+ * reloj más de {@link #MAX_ADELANTO_MS}: llegado ese límite se espera a que
+ * el reloj lo alcance, para que los milisegundos del id sigan indicando
+ * cuándo se generó. No se reserva memoria al generar; el texto solo se
+ * construye con {@link models.Transaction#formatearId(long)}.
+ *
+ * Tras un reinicio, {@link #avanzarHasta(long)} con los ids recuperados evita
+ * repetirlos aunque el reloj haya retrocedido.
+ */
+public final class TransactionIdGenerator {
+    public static final long EPOCH = 1735689600000L; // 2025-01-01T00:00:00Z
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    public static final long MAX_ADELANTO_MS = 1000;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodo;
+    // (milisegundo << SEQUENCE_BITS) | secuencia del último id emitido
+    private final AtomicLong ultimo = new AtomicLong();
+
+    public TransactionIdGenerator(int nodo) {
+
+        if (nodo < 0 || nodo > MAX_NODE) {
+            throw new IllegalArgumentException("Nodo fuera de rango (0-"
+                    + MAX_NODE + "): " + nodo);
+        }
+        this.nodo = nodo;
+    }
+
+    public long siguiente() {
+        long ahora = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+
+        for (;;) {
+            long anterior = ultimo.get();
+            long siguiente = Math.max(ahora, anterior + 1);
+
+            if ((siguiente >>> SEQUENCE_BITS) - (ahora >>> SEQUENCE_BITS)
+                    > MAX_ADELANTO_MS) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                ahora = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+                continue;
+            }
+            if (ultimo.compareAndSet(anterior, siguiente)) {
+                return ((siguiente >>> SEQUENCE_BITS)
+                        << (NODE_BITS + SEQUENCE_BITS))
+                        | (nodo << SEQUENCE_BITS)
+                        | (siguiente & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * Garantiza que los ids siguientes serán mayores que {@code id}, que puede
+     * ser de cualquier nodo.
+     */
+    public void avanzarHasta(long id) {
+
+        if (id < 0) {
+            return;
+        }
+        long estado = ((id >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS)
+                | (id & SEQUENCE_MASK);
+        ultimo.accumulateAndGet(estado, Math::max);
+    }
+
+    // Último id emitido o recuperado, con el nodo propio; -1 si no hay
+    public long ultimo() {
+        long estado = ultimo.get();
+
+        if (estado == 0) {
+            return -1;
+        }
+        return ((estado >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                | (nodo << SEQUENCE_BITS) | (estado & SEQUENCE_MASK);
+    }
+
+    public static long milisegundos(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    public static int nodo(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE);
+    }
+}
@@ -0,0 +1,492 @@
+package services;
+
+import exceptions.ServerException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import models.Account;
+import models.Money;
+import models.Transaction;
+
+/**
+ * Diario de escritura anticipada (WAL) de solo anexado sobre segmentos de
+ * fichero mapeados en memoria.
+ *
+ * Cada registro se copia al MappedByteBuffer del segmento activo, por lo que
+ * sobrevive a la caída del proceso en cuanto append() retorna. La
+ * sincronización con disco (force) se hace periódicamente en segundo plano en
+ * lugar de una vez por transferencia.
+ *
+ * Formato de registro: [int longitud][int crc32c][byte tipo][payload]. Una
+ * longitud 0 marca el final de los datos escritos en el segmento; un CRC
+ * incorrecto se trata como una escritura incompleta y se descarta junto con
+ * todo lo que le sigue.
+ */
+public class TransactionJournal implements AutoCloseable {
+    private static final Logger LOGGER = Logger
+            .getLogger(TransactionJournal.class.getName());
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 8;
+
+    static final byte TIPO_CUENTA = 1;
+    static final byte TIPO_TRANSACCION = 2;
+    static final byte TIPO_CUENTA_ELIMINADA = 3;
+    // Como TIPO_TRANSACCION, pero con el id generado como long
+    static final byte TIPO_TRANSACCION_ID = 4;
+
+    private final Path directorio;
+    private final int segmentSize;
+    private final ScheduledExecutorService flusher;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long primerSegmento;
+    private long segmentoActivo;
+    // Posición del segmento activo hasta la que los datos ya están en disco
+    private int forzadoHasta;
+    // Serializa los force sin bloquear append: el volcado se hace fuera del
+    // monitor del diario
+    private final Object forzado = new Object();
+
+    public TransactionJournal(Path directorio, int segmentSize)
+            throws IOException {
+        this.directorio = directorio;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directorio);
+
+        List<Long> segmentos = listarSegmentos();
+        primerSegmento = segmentos.isEmpty() ? 1L : segmentos.get(0);
+        segmentoActivo = segmentos.isEmpty() ? 1L
+                : segmentos.get(segmentos.size() - 1);
+        abrirSegmento(segmentoActivo);
+        buffer.position(finDeDatos(buffer));
+        forzadoHasta = buffer.position();
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "BankingApp-Journal");
+            t.setDaemon(true);
+            return t;
+        });
+        LOGGER.log(Level.INFO, "Diario abierto en {0}, segmento activo {1}",
+                new Object[]{directorio, segmentoActivo});
+    }
+
+    /**
+     * Arranca el volcado periódico a disco, fuera del constructor para que el
+     * hilo de volcado nunca vea el diario a medio construir.
+     */
+    public void iniciar(long flushIntervalMs) {
+        flusher.scheduleWithFixedDelay(this::flushSilencioso, flushIntervalMs,
+                flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized boolean isEmpty() {
+        return segmentoActivo == primerSegmento && buffer.position() == 0;
+    }
+
+    public void registrarCuenta(Account cuenta) throws ServerException {
+        Encoder e = new Encoder();
+        e.string(cuenta.getNumeroCuenta());
+        e.string(cuenta.getUserId());
+        e.bytes.write(cuenta.getTipo().ordinal());
+        e.putLong(cuenta.getSaldoCentimos());
+        append(TIPO_CUENTA, e);
+    }
+
+    public void registrarCuentaEliminada(String numeroCuenta)
+            throws ServerException {
+        Encoder e = new Encoder();
+        e.string(numeroCuenta);
+        append(TIPO_CUENTA_ELIMINADA, e);
+    }
+
+    /**
+     * Registra una transacción. Si {@code aplicaSaldos} es true, al
+     * reproducirla se adeuda el importe en la cuenta origen y se abona en la
+     * destino; los movimientos históricos sin efecto sobre el saldo se
+     * registran con false.
+     */
+    public void registrarTransaccion(Transaction t, boolean aplicaSaldos)
+            throws ServerException {
+        Encoder e = new Encoder();
+        boolean idNumerico = t.getIdNumerico() >= 0;
+
+        if (idNumerico) {
+            e.putLong(t.getIdNumerico());
+        } else {
+            e.string(t.getId());
+        }
+        e.string(t.getCuentaOrigen());
+        e.string(t.getCuentaDestino());
+        e.putLong(t.getCantidadCentimos());
+        e.bytes.write(t.getTipo().ordinal());
+        e.putLong(t.getFecha().toEpochSecond(ZoneOffset.UTC));
+        e.putInt(t.getFecha().getNano());
+        e.string(t.getConcepto());
+        e.bytes.write(aplicaSaldos ? 1 : 0);
+        append(idNumerico ? TIPO_TRANSACCION_ID : TIPO_TRANSACCION, e);
+    }
+
+    private synchronized void append(byte tipo, Encoder payload)
+            throws ServerException {
+        int longitud = payload.bytes.size() + 1;
+        // Se reserva siempre sitio para un terminador de longitud 0
+        int necesario = HEADER_SIZE + longitud + 4;
+
+        if (necesario > segmentSize) {
+            throw new ServerException("Registro demasiado grande para el diario",
+                    null);
+        }
+        try {
+            if (buffer.remaining() < necesario) {
+                rotarSegmento();
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(tipo);
+            crc.update(payload.bytes.array(), 0, payload.bytes.size());
+
+            int inicio = buffer.position();
+            buffer.position(inicio + 4);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(tipo);
+            buffer.put(payload.bytes.array(), 0, payload.bytes.size());
+            // Terminador explícito por si tras la cola descartada quedan restos
+            buffer.putInt(buffer.position(), 0);
+            // La longitud se publica al final: un registro a medias nunca
+            // parece completo al reproducir el diario
+            buffer.putInt(inicio, longitud);
+        } catch (IOException ex) {
+            throw new ServerException("Error escribiendo en el diario", ex);
+        }
+    }
+
+    /**
+     * Fuerza a disco todo lo anexado hasta ahora. Solo se toma el monitor
+     * del diario para leer hasta dónde hay datos; el volcado del rango
+     * pendiente se hace fuera, así que los append siguen llenando el
+     * próximo lote mientras dura.
+     */
+    public void force() {
+
+        synchronized (forzado) {
+            MappedByteBuffer datos;
+            int desde;
+            int hasta;
+
+            synchronized (this) {
+                datos = buffer;
+                desde = forzadoHasta;
+                hasta = buffer.position();
+            }
+            if (hasta <= desde) {
+                return;
+            }
+            // Incluye el terminador, que append siempre deja dentro del
+            // segmento
+            datos.force(desde, hasta + 4 - desde);
+
+            synchronized (this) {
+
+                if (buffer == datos) {
+                    forzadoHasta = Math.max(forzadoHasta, hasta);
+                }
+            }
+        }
+    }
+
+    private void flushSilencioso() {
+
+        try {
+            force();
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "Error sincronizando el diario", ex);
+        }
+    }
+
+    /**
+     * Reproduce en orden de escritura los registros válidos de los segmentos
+     * a partir de {@code desdeSegmento} (incluido).
+     */
+    public long recuperar(Visitor visitor, long desdeSegmento)
+            throws IOException {
+        return recuperar(visitor, desdeSegmento, Long.MAX_VALUE);
+    }
+
+    /**
+     * Como {@link #recuperar(Visitor, long)}, pero solo hasta
+     * {@code hastaSegmento} (excluido). Los segmentos cerrados ya no cambian
+     * y se leen sin el monitor del diario; solo el activo bloquea los append
+     * mientras se reproduce.
+     */
+    public long recuperar(Visitor visitor, long desdeSegmento,
+            long hastaSegmento) throws IOException {
+        long registros = 0;
+
+        for (long segmento : listarSegmentos()) {
+
+            if (segmento < desdeSegmento || segmento >= hastaSegmento) {
+                continue;
+            }
+            synchronized (this) {
+
+                if (segmento == segmentoActivo) {
+                    registros += reproducir(buffer.duplicate().position(0),
+                            visitor);
+                    continue;
+                }
+            }
+            registros += reproducir(mapearSoloLectura(segmento), visitor);
+        }
+        LOGGER.log(Level.INFO, "Diario reproducido: {0} registros", registros);
+        return registros;
+    }
+
+    private long reproducir(MappedByteBuffer datos, Visitor visitor) {
+        long registros = 0;
+        int fin = finDeDatos(datos);
+        datos.position(0);
+
+        while (datos.position() < fin) {
+            int longitud = datos.getInt();
+            datos.getInt(); // crc ya validado en finDeDatos
+            byte tipo = datos.get();
+            int siguiente = datos.position() + longitud - 1;
+            Decoder d = new Decoder(datos);
+
+            switch (tipo) {
+                case TIPO_CUENTA -> visitor.onCuenta(d.string(), d.string(),
+                        Account.TipoCuenta.values()[d.u8()],
+                        Money.deCentimos(d.getLong()));
+                case TIPO_CUENTA_ELIMINADA -> visitor.onCuentaEliminada(
+                        d.string());
+                case TIPO_TRANSACCION, TIPO_TRANSACCION_ID -> {
+                    Transaction t = tipo == TIPO_TRANSACCION_ID
+                            ? new Transaction(d.getLong(), d.string(),
+                                    d.string(), Money.deCentimos(d.getLong()),
+                                    Transaction.TipoTransaccion.values()[
+                                            d.u8()], null)
+                            : new Transaction(d.string(), d.string(),
+                                    d.string(), Money.deCentimos(d.getLong()),
+                                    Transaction.TipoTransaccion.values()[
+                                            d.u8()], null);
+                    t.setFecha(LocalDateTime.ofEpochSecond(d.getLong(),
+                            d.getInt(), ZoneOffset.UTC));
+                    t.setConcepto(d.string());
+                    visitor.onTransaccion(t, d.u8() == 1);
+                }
+                default -> LOGGER.log(Level.WARNING,
+                        "Tipo de registro desconocido en el diario: {0}", tipo);
+            }
+            datos.position(siguiente);
+            registros++;
+        }
+        return registros;
+    }
+
+    // Devuelve la posición tras el último registro íntegro del segmento
+    private static int finDeDatos(MappedByteBuffer datos) {
+        int pos = 0;
+        CRC32C crc = new CRC32C();
+
+        while (pos + HEADER_SIZE <= datos.limit()) {
+            int longitud = datos.getInt(pos);
+
+            if (longitud <= 0 || pos + HEADER_SIZE + longitud > datos.limit()) {
+                break;
+            }
+            crc.reset();
+            crc.update(datos.slice(pos + HEADER_SIZE, longitud));
+
+            if ((int) crc.getValue() != datos.getInt(pos + 4)) {
+                LOGGER.log(Level.WARNING, "Registro corrupto en el diario en "
+                        + "la posición {0}, se descarta la cola", pos);
+                break;
+            }
+            pos += HEADER_SIZE + longitud;
+        }
+        return pos;
+    }
+
+    /**
+     * Cierra el segmento activo y abre uno nuevo, salvo que el activo esté
+     * vacío. Devuelve el segmento a partir del cual se escribirán los
+     * registros siguientes: todo lo anterior queda en segmentos menores.
+     */
+    public synchronized long rotar() throws IOException {
+
+        if (buffer.position() > 0) {
+            rotarSegmento();
+        }
+        return segmentoActivo;
+    }
+
+    /**
+     * Indica si no se ha escrito nada desde que {@code segmento} pasó a ser el
+     * segmento activo.
+     */
+    public synchronized boolean sinCambiosDesde(long segmento) {
+        return segmentoActivo == segmento && buffer.position() == 0;
+    }
+
+    /**
+     * Borra los segmentos anteriores a {@code segmento}, ya cubiertos por una
+     * instantánea. Devuelve cuántos se han borrado.
+     */
+    public synchronized int eliminarSegmentosAnteriores(long segmento)
+            throws IOException {
+        int eliminados = 0;
+
+        for (long s : listarSegmentos()) {
+
+            if (s < segmento && s != segmentoActivo) {
+                Files.deleteIfExists(rutaSegmento(s));
+                eliminados++;
+            }
+        }
+        primerSegmento = Math.max(primerSegmento, Math.min(segmento,
+                segmentoActivo));
+        return eliminados;
+    }
+
+    private void rotarSegmento() throws IOException {
+        buffer.force();
+        channel.close();
+        segmentoActivo++;
+        abrirSegmento(segmentoActivo);
+        LOGGER.log(Level.INFO, "Diario rotado al segmento {0}", segmentoActivo);
+    }
+
+    private void abrirSegmento(long segmento) throws IOException {
+        channel = FileChannel.open(rutaSegmento(segmento),
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        forzadoHasta = 0;
+    }
+
+    private MappedByteBuffer mapearSoloLectura(long segmento) throws IOException {
+
+        try (FileChannel ch = FileChannel.open(rutaSegmento(segmento),
+                StandardOpenOption.READ)) {
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+    }
+
+    private Path rutaSegmento(long segmento) {
+        return directorio.resolve(String.format("%s%016d%s", SEGMENT_PREFIX,
+                segmento, SEGMENT_SUFFIX));
+    }
+
+    private List<Long> listarSegmentos() throws IOException {
+        List<Long> segmentos = new ArrayList<>();
+
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            ficheros.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(SEGMENT_PREFIX)
+                            && n.endsWith(SEGMENT_SUFFIX))
+                    .map(n -> Long.parseLong(n.substring(SEGMENT_PREFIX.length(),
+                            n.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .forEach(segmentos::add);
+        }
+        return segmentos;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flusher.shutdown();
+        buffer.force();
+        channel.close();
+        LOGGER.info("Diario cerrado");
+    }
+
+
+    public interface Visitor {
+        void onCuenta(String numeroCuenta, String userId,
+                Account.TipoCuenta tipo, Money saldo);
+        void onCuentaEliminada(String numeroCuenta);
+        void onTransaccion(Transaction transaccion, boolean aplicaSaldos);
+    }
+
+
+    private static final class Encoder {
+        private final Bytes bytes = new Bytes();
+
+        void putLong(long v) {
+            putInt((int) (v >>> 32));
+            putInt((int) v);
+        }
+
+        void putInt(int v) {
+            bytes.write(v >>> 24);
+            bytes.write(v >>> 16);
+            bytes.write(v >>> 8);
+            bytes.write(v);
+        }
+
+        void string(String s) {
+
+            if (s == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            putInt(utf8.length);
+            bytes.write(utf8, 0, utf8.length);
+        }
+    }
+
+
+    private static final class Bytes extends java.io.ByteArrayOutputStream {
+        Bytes() {
+            super(128);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+
+    private static final class Decoder {
+        private final MappedByteBuffer datos;
+
+        Decoder(MappedByteBuffer datos) {
+            this.datos = datos;
+        }
+
+        long getLong() { return datos.getLong(); }
+
+        int getInt() { return datos.getInt(); }
+
+        int u8() { return datos.get() & 0xFF; }
+
+        String string() {
+            int len = datos.getInt();
+
+            if (len < 0) {
+                return null;
+            }
+            byte[] utf8 = new byte[len];
+            datos.get(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+}
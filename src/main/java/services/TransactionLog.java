@@ -0,0 +1,84 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.List;
+import models.Transaction;
+
+/**
+ * Registro de transacciones de solo anexado, troceado en bloques de tamaño
+ * fijo.
+ *
+ * Los bloques nunca se copian ni se reubican y una posición no cambia una vez
+ * escrita, así que para copiar el registro basta con fijar bajo el monitor el
+ * tamaño y las referencias a los bloques (una por cada {@code CHUNK_SIZE}
+ * filas); la copia de las filas se hace después sin bloquear a quien anexa.
+ */
+public class TransactionLog {
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private final List<Transaction[]> bloques = new ArrayList<>();
+    private int tamanio;
+
+    // Devuelve la posición en la que ha quedado la transacción
+    public synchronized int agregar(Transaction transaccion) {
+        int offset = tamanio & (CHUNK_SIZE - 1);
+
+        if (offset == 0) {
+            bloques.add(new Transaction[CHUNK_SIZE]);
+        }
+        bloques.get(tamanio >>> CHUNK_SHIFT)[offset] = transaccion;
+        return tamanio++;
+    }
+
+    public synchronized int tamanio() {
+        return tamanio;
+    }
+
+    /**
+     * Transacción en la posición {@code indice} en orden de registro.
+     */
+    public synchronized Transaction get(int indice) {
+
+        if (indice < 0 || indice >= tamanio) {
+            throw new IndexOutOfBoundsException(indice);
+        }
+        return bloques.get(indice >>> CHUNK_SHIFT)[indice & (CHUNK_SIZE - 1)];
+    }
+
+    public Transaction[] copiar() {
+        return copiar(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Copia las posiciones en [desde, hasta), recortadas al tamaño actual.
+     */
+    public Transaction[] copiar(int desde, int hasta) {
+        Transaction[][] fijados;
+        int fin;
+
+        synchronized (this) {
+            fin = Math.min(hasta, tamanio);
+
+            if (desde < 0 || desde > fin) {
+                throw new IndexOutOfBoundsException(desde);
+            }
+            // Solo los bloques del rango; lo escrito en ellos hasta "fin" es
+            // visible tras salir del monitor
+            fijados = bloques.subList(desde >>> CHUNK_SHIFT,
+                    (fin + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)
+                    .toArray(new Transaction[0][]);
+        }
+        Transaction[] copia = new Transaction[fin - desde];
+        int copiadas = 0;
+
+        for (int b = 0; copiadas < copia.length; b++) {
+            int inicio = b == 0 ? desde & (CHUNK_SIZE - 1) : 0;
+            int cuantas = Math.min(CHUNK_SIZE - inicio,
+                    copia.length - copiadas);
+            System.arraycopy(fijados[b], inicio, copia, copiadas, cuantas);
+            copiadas += cuantas;
+        }
+        return copia;
+    }
+}
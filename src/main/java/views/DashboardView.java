@@ -164,7 +164,7 @@ public class DashboardView extends JFrame implements DashboardContract.View {
         infoPanel.add(tipoLabel);
         
         // Saldo
-        JLabel saldoLabel = new JLabel(String.format("%.2f €", cuenta.getSaldo()));
+        JLabel saldoLabel = new JLabel(cuenta.getSaldoMoney().toString());
         saldoLabel.setFont(new Font("Arial", Font.BOLD, 14));
         saldoLabel.setForeground(new Color(0, 120, 180));
         saldoLabel.setHorizontalAlignment(SwingConstants.RIGHT);
@@ -227,7 +227,7 @@ public class DashboardView extends JFrame implements DashboardContract.View {
         Color color = transaccion.getTipo() == Transaction.TipoTransaccion.INGRESO ? 
                      new Color(0, 150, 0) : new Color(200, 0, 0);
         
-        JLabel cantidadLabel = new JLabel(String.format("%s%.2f €", signo, transaccion.getCantidad()));
+        JLabel cantidadLabel = new JLabel(signo + transaccion.getImporte());
         cantidadLabel.setFont(new Font("Arial", Font.BOLD, 12));
         cantidadLabel.setForeground(color);
         cantidadLabel.setHorizontalAlignment(SwingConstants.RIGHT);
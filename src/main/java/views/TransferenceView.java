@@ -8,6 +8,7 @@ import java.awt.Font;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.util.UUID;
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
@@ -34,6 +35,10 @@ public class TransferenceView extends JFrame implements TransferenceContract.Vie
     private JProgressBar progressBar;
     private JLabel statusLabel;
     private java.util.List<Account> cuentasDisponibles;
+    // Identifica el envío actual: los clics repetidos mientras está en curso 
+    // reutilizan la clave y el servicio no los ejecuta dos veces. Solo se 
+    // accede desde el EDT
+    private String claveIdempotencia = UUID.randomUUID().toString();
     
     public TransferenceView() {
         presenter = new TransferencePresenter(this);
@@ -136,7 +141,7 @@ public class TransferenceView extends JFrame implements TransferenceContract.Vie
             String concepto = conceptoField.getText().trim();
             
             presenter.realizarTransferencia(cuentaOrigen, cuentaDestino, 
-                    cantidad, concepto);
+                    cantidad, concepto, claveIdempotencia);
         } catch (NumberFormatException e) {
             mostrarError("Ingrese una cantidad válida");
         }
@@ -160,9 +165,8 @@ public class TransferenceView extends JFrame implements TransferenceContract.Vie
             cuentaOrigenCombo.removeAllItems();
             
             for (Account cuenta : cuentas) {
-                String item = String.format("%s - %.2f €", 
-                    formatearNumeroCuenta(cuenta.getNumeroCuenta()), 
-                    cuenta.getSaldo());
+                String item = formatearNumeroCuenta(cuenta.getNumeroCuenta()) 
+                    + " - " + cuenta.getSaldoMoney();
                 cuentaOrigenCombo.addItem(item);
             }
         });
@@ -213,6 +217,8 @@ public class TransferenceView extends JFrame implements TransferenceContract.Vie
         SwingUtilities.invokeLater(() -> {
             progressBar.setVisible(false);
             transferirButton.setEnabled(true);
+            // La transferencia ha terminado: el siguiente envío es otro
+            claveIdempotencia = UUID.randomUUID().toString();
         });
     }
     
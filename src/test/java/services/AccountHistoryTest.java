@@ -0,0 +1,179 @@
+package services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import exceptions.ValidationException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import models.Money;
+import models.MovementQuery;
+import models.Transaction;
+import models.TransactionPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Paginación por cursor sobre el índice por fecha: con o sin rango de fechas,
+ * importe y concepto, recorrer todas las páginas entrega cada movimiento que
+ * cumple la consulta exactamente una vez y en orden, aunque se anexen
+ * movimientos entre página y página.
+ */
+class AccountHistoryTest {
+    private static final String CUENTA = "ES00-1";
+    private static final LocalDateTime INICIO = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final int MOVIMIENTOS = 600;
+    private static final String[] CONCEPTOS = {"Nómina enero",
+        "Compra supermercado", "NOMINA extra", "Recibo luz"};
+
+    private AccountHistory historial;
+    // Movimientos en orden de registro, para calcular el resultado esperado
+    private List<Transaction> registrados;
+    private long siguienteId;
+
+    @BeforeEach
+    void preparar() {
+        historial = new AccountHistory();
+        registrados = new ArrayList<>();
+
+        // Tres movimientos por hora con la misma fecha: el cursor tiene que
+        // desempatar por la posición en el historial
+        for (int i = 0; i < MOVIMIENTOS; i++) {
+            agregar(INICIO.plusHours(i / 3), (i * 37L) % 20_000 + 1,
+                    CONCEPTOS[i % CONCEPTOS.length]);
+        }
+    }
+
+    @Test
+    void sinFiltrosRecorreTodoElHistorial() throws Exception {
+        MovementQuery consulta = new MovementQuery(CUENTA, null, null);
+        List<Transaction> esperados = esperados(null, null, Long.MIN_VALUE,
+                Long.MAX_VALUE, null);
+
+        assertEquals(MOVIMIENTOS, esperados.size());
+        assertEquals(esperados, paginar(consulta, 7, null));
+    }
+
+    @Test
+    void rangoDeFechasImporteYConceptoConAnexadosEntrePaginas()
+            throws Exception {
+        LocalDateTime desde = INICIO.plusHours(20);
+        LocalDateTime hasta = INICIO.plusHours(150);
+        MovementQuery consulta = new MovementQuery(CUENTA, desde, hasta);
+        consulta.setImporteMinimo(Money.deCentimos(2_000));
+        consulta.setImporteMaximo(Money.deCentimos(15_000));
+        consulta.setConcepto("nomina");
+        List<Transaction> esperados = esperados(desde, hasta, 2_000, 15_000,
+                "nomina");
+
+        assertTrue(esperados.size() > 10, "Pocos movimientos para paginar");
+        assertEquals(esperados, paginar(consulta, 3, ultima -> {
+            // Uno posterior a todo, otro con la misma fecha que el último
+            // entregado y otro dentro del rango: todos cumplen los filtros
+            // pero son posteriores al cursor, así que no deben aparecer
+            agregar(INICIO.plusHours(1000), 5_000, "Nómina atrasos");
+            agregar(ultima.getFecha(), 5_000, "Nómina atrasos");
+            agregar(hasta.minusMinutes(1), 5_000, "Nomina atrasos");
+        }));
+    }
+
+    @Test
+    void laUltimaPaginaNoTieneCursorSiNoQuedanCoincidencias()
+            throws Exception {
+        MovementQuery consulta = new MovementQuery(CUENTA, null, null);
+        consulta.setConcepto("recibo");
+        consulta.setLimite(MOVIMIENTOS / CONCEPTOS.length);
+
+        TransactionPage pagina = historial.buscar(consulta);
+
+        assertEquals(MOVIMIENTOS / CONCEPTOS.length,
+                pagina.getMovimientos().size());
+        assertFalse(pagina.hayMas());
+    }
+
+    @Test
+    void cursorNoValido() {
+        MovementQuery consulta = new MovementQuery(CUENTA, null, null);
+        consulta.setCursor("no-es-un-cursor");
+
+        assertThrows(ValidationException.class,
+                () -> historial.buscar(consulta));
+    }
+
+    // Recorre todas las páginas; "entrePaginas" recibe el último movimiento
+    // de cada página antes de pedir la siguiente
+    private List<Transaction> paginar(MovementQuery consulta, int limite,
+            Consumer<Transaction> entrePaginas)
+            throws ValidationException {
+        Set<Transaction> vistos = Collections.newSetFromMap(
+                new IdentityHashMap<>());
+        List<Transaction> entregados = new ArrayList<>();
+        consulta.setLimite(limite);
+
+        for (;;) {
+            TransactionPage pagina = historial.buscar(consulta);
+            List<Transaction> movimientos = pagina.getMovimientos();
+
+            assertTrue(movimientos.size() <= limite);
+            for (Transaction t : movimientos) {
+                assertTrue(vistos.add(t), "Movimiento repetido: " + t.getId());
+                entregados.add(t);
+            }
+            if (!pagina.hayMas()) {
+                return entregados;
+            }
+            assertEquals(limite, movimientos.size());
+            if (entrePaginas != null) {
+                entrePaginas.accept(movimientos.get(movimientos.size() - 1));
+            }
+            consulta.setCursor(pagina.getSiguienteCursor());
+        }
+    }
+
+    // Resultado esperado calculado por fuerza bruta sobre lo registrado hasta
+    // ahora: del más reciente al más antiguo y, a igual fecha, del último
+    // registrado al primero. "prefijo" es un único término ya normalizado
+    private List<Transaction> esperados(LocalDateTime desde,
+            LocalDateTime hasta, long minimo, long maximo, String prefijo) {
+        Map<Transaction, Integer> posicion = new IdentityHashMap<>();
+        List<Transaction> resultado = new ArrayList<>();
+
+        for (int i = 0; i < registrados.size(); i++) {
+            Transaction t = registrados.get(i);
+            posicion.put(t, i);
+
+            if ((desde == null || !t.getFecha().isBefore(desde))
+                    && (hasta == null || t.getFecha().isBefore(hasta))
+                    && t.getCantidadCentimos() >= minimo
+                    && t.getCantidadCentimos() <= maximo
+                    && (prefijo == null || ConceptIndex.tokenizar(
+                            t.getConcepto()).stream()
+                            .anyMatch(k -> k.startsWith(prefijo)))) {
+                resultado.add(t);
+            }
+        }
+        resultado.sort((a, b) -> {
+            int c = b.getFecha().compareTo(a.getFecha());
+            return c != 0 ? c : Integer.compare(posicion.get(b),
+                    posicion.get(a));
+        });
+        return resultado;
+    }
+
+    private void agregar(LocalDateTime fecha, long centimos, String concepto) {
+        Transaction t = new Transaction(siguienteId++, CUENTA, "ES00-2",
+                Money.deCentimos(centimos), Transaction.TipoTransaccion.PAGO,
+                concepto);
+        t.setFecha(fecha);
+        registrados.add(t);
+        historial.agregar(t);
+    }
+}
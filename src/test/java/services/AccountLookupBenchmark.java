@@ -0,0 +1,62 @@
+package services;
+
+import java.util.concurrent.ThreadLocalRandom;
+import models.Account;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Coste de buscar una cuenta por número y las de un usuario a medida que
+ * crece el número de cuentas: con los índices debe mantenerse plano.
+ */
+@Tag("benchmark")
+class AccountLookupBenchmark {
+    private static final int[] TAMANIOS = {1_000, 10_000, 100_000, 1_000_000};
+    private static final int BUSQUEDAS = 2_000_000;
+
+    @Test
+    void busquedaPlanaAlCrecer() throws Exception {
+        BankingService servicio = BankingService.getInstance();
+        int registradas = 0;
+        long sumidero = 0;
+
+        System.out.printf("%10s %14s %14s%n", "cuentas", "ns/numero",
+                "ns/usuario");
+
+        for (int tamanio : TAMANIOS) {
+
+            for (; registradas < tamanio; registradas++) {
+                servicio.registrarCuenta(new Account(numero(registradas),
+                        "b" + (registradas / 4), 100.0,
+                        Account.TipoCuenta.CORRIENTE));
+            }
+            // Calentamiento y medida con claves aleatorias
+            for (int ronda = 0; ronda < 2; ronda++) {
+                long inicio = System.nanoTime();
+
+                for (int i = 0; i < BUSQUEDAS; i++) {
+                    int k = ThreadLocalRandom.current().nextInt(tamanio);
+                    sumidero += servicio.buscarCuenta(numero(k)).getSlot();
+                }
+                long porNumero = (System.nanoTime() - inicio) / BUSQUEDAS;
+                inicio = System.nanoTime();
+
+                for (int i = 0; i < BUSQUEDAS; i++) {
+                    int k = ThreadLocalRandom.current().nextInt(tamanio / 4);
+                    sumidero += servicio.buscarCuentasUsuario("b" + k).size();
+                }
+                long porUsuario = (System.nanoTime() - inicio) / BUSQUEDAS;
+
+                if (ronda == 1) {
+                    System.out.printf("%10d %14d %14d%n", tamanio, porNumero,
+                            porUsuario);
+                }
+            }
+        }
+        System.out.println("(sumidero " + sumidero + ")");
+    }
+
+    private static String numero(int i) {
+        return "BM" + i;
+    }
+}
@@ -0,0 +1,178 @@
+package services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import exceptions.InsufficientFundsException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import models.Account;
+import models.BalanceBook;
+import models.Money;
+import models.Transaction;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Transferencias concurrentes entre pocas cuentas con cada modo de asiento:
+ * el dinero total no cambia, ningún saldo queda negativo y reproducir el
+ * diario da los mismos saldos.
+ */
+class LedgerConservationTest {
+    private static final int CUENTAS = 32;
+    private static final int HILOS = 8;
+    private static final int TRANSFERENCIAS_POR_HILO = 20_000;
+    private static final long SALDO_INICIAL = 10_000;
+
+    enum Modo { LOCKS, ANILLO, ANILLO_ASINCRONO }
+
+    @TempDir
+    Path directorio;
+
+    @ParameterizedTest
+    @EnumSource(Modo.class)
+    void conservaElDineroYElDiarioLoReproduce(Modo modo) throws Exception {
+        BalanceBook book = new BalanceBook();
+        TransactionIdGenerator ids = new TransactionIdGenerator(1);
+        List<Account> cuentas = new ArrayList<>(CUENTAS);
+        LongAdder rechazadas = new LongAdder();
+        TransactionJournal journal = new TransactionJournal(directorio,
+                1 << 20);
+
+        for (int i = 0; i < CUENTAS; i++) {
+            Account cuenta = new Account("ES00-" + i, "u" + (i % 4),
+                    Money.deCentimos(SALDO_INICIAL), Account.TipoCuenta.CORRIENTE,
+                    book);
+            cuentas.add(cuenta);
+            journal.registrarCuenta(cuenta);
+        }
+        LedgerEngine ledger = modo == Modo.LOCKS ? new PostingEngine(8)
+                : new RingBufferLedger(1024);
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        List<Future<?>> tareas = new ArrayList<>();
+
+        try {
+            for (int h = 0; h < HILOS; h++) {
+                tareas.add(hilos.submit(() -> {
+                    transferir(modo, ledger, journal, ids, cuentas, rechazadas);
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            hilos.shutdownNow();
+            ledger.close();
+        }
+        long total = 0;
+
+        for (Account cuenta : cuentas) {
+            assertTrue(cuenta.getSaldoCentimos() >= 0,
+                    "Saldo negativo en " + cuenta.getNumeroCuenta());
+            total += cuenta.getSaldoCentimos();
+        }
+        assertEquals(CUENTAS * SALDO_INICIAL, total);
+        assertTrue(rechazadas.sum() < (long) HILOS * TRANSFERENCIAS_POR_HILO,
+                "Todas las transferencias se rechazaron");
+
+        journal.close();
+        Map<String, Long> reproducidos = reproducir(directorio);
+        assertEquals(CUENTAS, reproducidos.size());
+
+        for (Account cuenta : cuentas) {
+            assertEquals(cuenta.getSaldoCentimos(),
+                    reproducidos.get(cuenta.getNumeroCuenta()),
+                    "Saldo reproducido de " + cuenta.getNumeroCuenta());
+        }
+    }
+
+    private static void transferir(Modo modo, LedgerEngine ledger,
+            TransactionJournal journal, TransactionIdGenerator ids,
+            List<Account> cuentas, LongAdder rechazadas) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<CompletableFuture<Void>> enCurso = new ArrayList<>();
+
+        for (int i = 0; i < TRANSFERENCIAS_POR_HILO; i++) {
+            Account origen = cuentas.get(random.nextInt(CUENTAS));
+            Account destino = cuentas.get(random.nextInt(CUENTAS));
+
+            if (origen == destino) {
+                continue;
+            }
+            Money importe = Money.deCentimos(1 + random.nextInt(2_000));
+            Transaction t = new Transaction(ids.siguiente(),
+                    origen.getNumeroCuenta(), destino.getNumeroCuenta(),
+                    importe, Transaction.TipoTransaccion.TRANSFERENCIA, null);
+            PostingEngine.Registro registro =
+                    () -> journal.registrarTransaccion(t, true);
+
+            if (modo == Modo.ANILLO_ASINCRONO) {
+                enCurso.add(((RingBufferLedger) ledger).enviar(origen, destino,
+                        importe, registro));
+                continue;
+            }
+            try {
+                ledger.transferir(origen, destino, importe, registro);
+            } catch (InsufficientFundsException e) {
+                rechazadas.increment();
+            }
+        }
+        for (CompletableFuture<Void> f : enCurso) {
+            try {
+                f.join();
+            } catch (CompletionException e) {
+
+                if (!(e.getCause() instanceof InsufficientFundsException)) {
+                    throw e;
+                }
+                rechazadas.increment();
+            }
+        }
+    }
+
+    private static Map<String, Long> reproducir(Path directorio)
+            throws Exception {
+        Map<String, Long> saldos = new HashMap<>();
+
+        try (TransactionJournal journal = new TransactionJournal(directorio,
+                1 << 20)) {
+            journal.recuperar(new TransactionJournal.Visitor() {
+                @Override
+                public void onCuenta(String numeroCuenta, String userId,
+                        Account.TipoCuenta tipo, Money saldo) {
+                    saldos.put(numeroCuenta, saldo.getCentimos());
+                }
+
+                @Override
+                public void onCuentaEliminada(String numeroCuenta) {
+                    saldos.remove(numeroCuenta);
+                }
+
+                @Override
+                public void onTransaccion(Transaction t, boolean aplicaSaldos) {
+
+                    if (aplicaSaldos) {
+                        saldos.merge(t.getCuentaOrigen(),
+                                -t.getCantidadCentimos(), Long::sum);
+                        saldos.merge(t.getCuentaDestino(),
+                                t.getCantidadCentimos(), Long::sum);
+                    }
+                }
+            }, 0L);
+        }
+        return saldos;
+    }
+}
@@ -0,0 +1,84 @@
+package services;
+
+import exceptions.BankingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import models.Account;
+import models.BalanceBook;
+import models.Money;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Transferencias por segundo con locks por franjas frente al anillo de un
+ * único escritor, con mucha contención: todos los hilos mueven dinero entre
+ * unas pocas cuentas calientes.
+ */
+@Tag("benchmark")
+class LedgerEngineBenchmark {
+    private static final int CUENTAS_CALIENTES = 4;
+    private static final int HILOS = 16;
+    private static final int TRANSFERENCIAS_POR_HILO = 100_000;
+
+    @Test
+    void anilloFrenteALocks() throws Exception {
+
+        for (int ronda = 0; ronda < 3; ronda++) {
+            medir("locks", new PostingEngine(), ronda > 0);
+            medir("anillo", new RingBufferLedger(4096), ronda > 0);
+        }
+    }
+
+    private static void medir(String nombre, LedgerEngine ledger,
+            boolean imprimir) throws Exception {
+        BalanceBook book = new BalanceBook();
+        List<Account> cuentas = new ArrayList<>();
+
+        for (int i = 0; i < CUENTAS_CALIENTES; i++) {
+            cuentas.add(new Account("HOT-" + i, "u", Money.deCentimos(
+                    Long.MAX_VALUE / 8), Account.TipoCuenta.CORRIENTE, book));
+        }
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Thread> hilos = new ArrayList<>();
+
+        for (int h = 0; h < HILOS; h++) {
+            Thread t = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                try {
+                    salida.await();
+
+                    for (int i = 0; i < TRANSFERENCIAS_POR_HILO; i++) {
+                        int o = random.nextInt(CUENTAS_CALIENTES);
+                        int d = (o + 1 + random.nextInt(CUENTAS_CALIENTES - 1))
+                                % CUENTAS_CALIENTES;
+                        ledger.transferir(cuentas.get(o), cuentas.get(d),
+                                Money.deCentimos(1), () -> { });
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (BankingException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            t.start();
+            hilos.add(t);
+        }
+        long inicio = System.nanoTime();
+        salida.countDown();
+
+        for (Thread t : hilos) {
+            t.join();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        ledger.close();
+
+        if (imprimir) {
+            System.out.printf("%-7s %d hilos, %d cuentas: %,.0f transferencias/s"
+                    + "%n", nombre, HILOS, CUENTAS_CALIENTES,
+                    HILOS * (double) TRANSFERENCIAS_POR_HILO / segundos);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import models.Account;
+import models.BalanceBook;
+import models.Money;
+import models.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Instantánea, cola del diario y reinicio: los segmentos cubiertos se borran
+ * y al arrancar la instantánea, el historial archivado y la cola dan los
+ * mismos saldos e historial que antes de parar.
+ */
+class LedgerSnapshotterTest {
+    private static final int SEGMENTO = 64 * 1024;
+    private static final int TRANSFERENCIAS_POR_TANDA = 1_500;
+
+    @TempDir
+    Path directorio;
+
+    // Estado esperado, mantenido a la vez que se escribe el diario
+    private final Map<String, Account> cuentas = new LinkedHashMap<>();
+    private final List<Transaction> historial = new ArrayList<>();
+    private final BalanceBook book = new BalanceBook();
+    private final TransactionIdGenerator ids = new TransactionIdGenerator(1);
+    private TransactionJournal journal;
+
+    @Test
+    void reinicioTrasInstantaneaYCola() throws Exception {
+        journal = new TransactionJournal(directorio, SEGMENTO);
+        LedgerSnapshotter snapshotter = new LedgerSnapshotter(directorio,
+                journal, this::capturar);
+
+        abrirCuenta("ES00-1", 1_000_000);
+        abrirCuenta("ES00-2", 1_000_000);
+        movimientoHistorico("H-1", "ES00-1", 12_345, "Saldo migrado");
+        transferencias("ES00-1", "ES00-2");
+        snapshotter.snapshot();
+        long primera = primerSegmento();
+
+        // La segunda instantánea solo archiva lo posterior a la primera
+        transferencias("ES00-2", "ES00-1");
+        snapshotter.snapshot();
+        long segunda = primerSegmento();
+        assertTrue(segunda > primera, "No se han borrado segmentos cubiertos");
+
+        // Cola sin instantánea: cuenta nueva y más transferencias
+        abrirCuenta("ES00-3", 0);
+        transferencias("ES00-1", "ES00-3");
+        snapshotter.close();
+        journal.close();
+
+        // Bloque de una instantánea que no llegó a escribirse: se ignora
+        Files.write(directorio.resolve("historial.bin"), new byte[]{1, 2, 3},
+                StandardOpenOption.APPEND);
+
+        Map<String, Long> saldos = new LinkedHashMap<>();
+        List<Transaction> recuperado = new ArrayList<>();
+        journal = new TransactionJournal(directorio, SEGMENTO);
+        snapshotter = new LedgerSnapshotter(directorio, journal,
+                this::capturar);
+        LedgerSnapshotter.Imagen imagen = snapshotter.cargarUltima();
+
+        assertNotNull(imagen);
+        assertEquals(segunda, imagen.segmento());
+        for (LedgerSnapshotter.CuentaImagen c : imagen.cuentas()) {
+            saldos.put(c.numeroCuenta(), c.saldoCentimos());
+        }
+        assertEquals(imagen.transacciones(),
+                snapshotter.cargarHistorial(recuperado::add));
+
+        journal.recuperar(new TransactionJournal.Visitor() {
+            @Override
+            public void onCuenta(String numeroCuenta, String userId,
+                    Account.TipoCuenta tipo, Money saldo) {
+                saldos.put(numeroCuenta, saldo.getCentimos());
+            }
+
+            @Override
+            public void onCuentaEliminada(String numeroCuenta) {
+                saldos.remove(numeroCuenta);
+            }
+
+            @Override
+            public void onTransaccion(Transaction t, boolean aplicaSaldos) {
+
+                if (aplicaSaldos) {
+                    saldos.computeIfPresent(t.getCuentaOrigen(),
+                            (k, v) -> v - t.getCantidadCentimos());
+                    saldos.computeIfPresent(t.getCuentaDestino(),
+                            (k, v) -> v + t.getCantidadCentimos());
+                }
+                recuperado.add(t);
+            }
+        }, imagen.segmento());
+        snapshotter.close();
+        journal.close();
+
+        Map<String, Long> esperados = new LinkedHashMap<>();
+        cuentas.forEach((numero, c) -> esperados.put(numero,
+                c.getSaldoCentimos()));
+        assertEquals(esperados, saldos);
+        assertEquals(describir(historial), describir(recuperado));
+    }
+
+    private LedgerSnapshotter.Imagen capturar() throws IOException {
+        long segmento = journal.rotar();
+        List<LedgerSnapshotter.CuentaImagen> imagen = new ArrayList<>();
+
+        for (Account c : cuentas.values()) {
+            imagen.add(new LedgerSnapshotter.CuentaImagen(c.getNumeroCuenta(),
+                    c.getUserId(), c.getTipo(), c.getSaldoCentimos()));
+        }
+        return new LedgerSnapshotter.Imagen(segmento, historial.size(),
+                ids.ultimo(), imagen);
+    }
+
+    private void abrirCuenta(String numero, long centimos) throws Exception {
+        Account cuenta = new Account(numero, "u1", Money.deCentimos(centimos),
+                Account.TipoCuenta.CORRIENTE, book);
+        cuentas.put(numero, cuenta);
+        journal.registrarCuenta(cuenta);
+    }
+
+    private void movimientoHistorico(String id, String cuenta, long centimos,
+            String concepto) throws Exception {
+        Transaction t = new Transaction(id, cuenta, null,
+                Money.deCentimos(centimos), Transaction.TipoTransaccion.INGRESO,
+                concepto);
+        historial.add(t);
+        journal.registrarTransaccion(t, false);
+    }
+
+    private void transferencias(String origen, String destino)
+            throws Exception {
+
+        for (int i = 0; i < TRANSFERENCIAS_POR_TANDA; i++) {
+            long centimos = 1 + i % 250;
+            Transaction t = new Transaction(ids.siguiente(), origen, destino,
+                    Money.deCentimos(centimos),
+                    Transaction.TipoTransaccion.TRANSFERENCIA,
+                    "Transferencia " + i);
+            cuentas.get(origen).setSaldoCentimos(
+                    cuentas.get(origen).getSaldoCentimos() - centimos);
+            cuentas.get(destino).setSaldoCentimos(
+                    cuentas.get(destino).getSaldoCentimos() + centimos);
+            historial.add(t);
+            journal.registrarTransaccion(t, true);
+        }
+    }
+
+    // Primer segmento del diario que sigue en disco
+    private long primerSegmento() throws IOException {
+
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            return ficheros.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith("journal-"))
+                    .mapToLong(n -> Long.parseLong(n.replaceAll("\\D", "")))
+                    .min().orElseThrow();
+        }
+    }
+
+    private static List<String> describir(List<Transaction> transacciones) {
+        List<String> filas = new ArrayList<>(transacciones.size());
+
+        for (Transaction t : transacciones) {
+            filas.add(String.join("|", t.getId(), t.getCuentaOrigen(),
+                    String.valueOf(t.getCuentaDestino()),
+                    String.valueOf(t.getCantidadCentimos()),
+                    t.getTipo().name(), t.getFecha().toString(),
+                    t.getConcepto()));
+        }
+        return filas;
+    }
+}
@@ -0,0 +1,59 @@
+package services;
+
+import exceptions.ServerException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Operaciones bloqueantes por segundo en el compartimento de consultas con
+ * hilos de plataforma frente a hilos virtuales. El tamaño y la cola del
+ * compartimento los fija la configuración de surefire.
+ */
+@Tag("benchmark")
+class ThreadModeBenchmark {
+    private static final int TAREAS = 5_000;
+    private static final long BLOQUEO_MS = 50;
+
+    @Test
+    void plataformaFrenteAVirtuales() throws Exception {
+
+        for (boolean virtual : new boolean[]{false, true}) {
+            ThreadPoolManager manager = new ThreadPoolManager(virtual);
+            LongAdder rechazadas = new LongAdder();
+            CompletableFuture<?>[] tareas = new CompletableFuture<?>[TAREAS];
+            long inicio = System.nanoTime();
+
+            try {
+                for (int i = 0; i < TAREAS; i++) {
+                    CompletableFuture<Void> hecha = new CompletableFuture<>();
+                    tareas[i] = hecha;
+
+                    try {
+                        manager.executeAsync(
+                                ThreadPoolManager.Bulkhead.CONSULTAS, () -> {
+                            try {
+                                Thread.sleep(BLOQUEO_MS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            hecha.complete(null);
+                        });
+                    } catch (ServerException e) {
+                        rechazadas.increment();
+                        hecha.complete(null);
+                    }
+                }
+                CompletableFuture.allOf(tareas).join();
+            } finally {
+                manager.shutdown();
+            }
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            System.out.printf("%-10s %,d tareas de %d ms en %.2f s: %,.0f/s, "
+                    + "%d rechazadas%n", virtual ? "virtuales" : "plataforma",
+                    TAREAS, BLOQUEO_MS, segundos, TAREAS / segundos,
+                    rechazadas.sum());
+        }
+    }
+}
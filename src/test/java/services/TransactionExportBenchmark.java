@@ -0,0 +1,73 @@
+package services;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDateTime;
+import models.Money;
+import models.Transaction;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Filas por segundo y MB/s de la exportación de un historial grande a un
+ * canal que descarta los datos, en CSV y en binario.
+ */
+@Tag("benchmark")
+class TransactionExportBenchmark {
+    private static final int FILAS = 2_000_000;
+
+    @Test
+    void throughputDeExportacion() throws Exception {
+        AccountHistory historial = new AccountHistory();
+        LocalDateTime fecha = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+        for (int i = 0; i < FILAS; i++) {
+            Transaction t = new Transaction(i, "ES00-ORIGEN", "ES00-DESTINO",
+                    Money.deCentimos(1 + i % 100_000),
+                    Transaction.TipoTransaccion.TRANSFERENCIA,
+                    "Concepto " + (i % 1000));
+            t.setFecha(fecha.plusSeconds(i));
+            historial.agregar(t);
+        }
+        for (TransactionExporter.Formato formato
+                : TransactionExporter.Formato.values()) {
+
+            for (int ronda = 0; ronda < 3; ronda++) {
+                Contador canal = new Contador();
+                long inicio = System.nanoTime();
+                long filas = new TransactionExporter(canal, formato)
+                        .exportar(historial);
+                double segundos = (System.nanoTime() - inicio) / 1e9;
+
+                if (ronda > 0) {
+                    System.out.printf("%-8s %,d filas en %.2f s: %,.0f filas/s,"
+                            + " %.1f MB/s%n", formato, filas, segundos,
+                            filas / segundos,
+                            canal.bytes / segundos / (1 << 20));
+                }
+            }
+        }
+    }
+
+
+    private static final class Contador implements WritableByteChannel {
+        private long bytes;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            src.position(src.limit());
+            bytes += n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unicidad y orden de los ids generados con varios hilos, al agotar las
+ * secuencias de un milisegundo y cuando el reloj va por detrás del último id
+ * recuperado.
+ */
+class TransactionIdGeneratorTest {
+    private static final int NODO = 7;
+    private static final int HILOS = 8;
+    private static final int IDS_POR_HILO = 50_000;
+    private static final int SECUENCIAS = 1 << TransactionIdGenerator.SEQUENCE_BITS;
+
+    @Test
+    void idsUnicosYCrecientesPorHilo() throws Exception {
+        TransactionIdGenerator generador = new TransactionIdGenerator(NODO);
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        List<Future<long[]>> tareas = new ArrayList<>(HILOS);
+
+        try {
+            for (int h = 0; h < HILOS; h++) {
+                tareas.add(pool.submit(() -> {
+                    long[] ids = new long[IDS_POR_HILO];
+
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = generador.siguiente();
+                    }
+                    return ids;
+                }));
+            }
+            Set<Long> todos = new HashSet<>(HILOS * IDS_POR_HILO * 2);
+
+            for (Future<long[]> tarea : tareas) {
+                long[] ids = tarea.get();
+
+                for (int i = 0; i < ids.length; i++) {
+                    assertEquals(NODO, TransactionIdGenerator.nodo(ids[i]));
+                    assertTrue(i == 0 || ids[i] > ids[i - 1],
+                            "Id no creciente en la posición " + i);
+                    assertTrue(todos.add(ids[i]), "Id repetido: " + ids[i]);
+                }
+            }
+            assertEquals(HILOS * IDS_POR_HILO, todos.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void masIdsQueSecuenciasPorMilisegundo() {
+        TransactionIdGenerator generador = new TransactionIdGenerator(NODO);
+        // Más ids de los que caben en un milisegundo: la secuencia vuelve a
+        // cero (agotada o porque avanza el reloj) sin romper el orden ni
+        // adelantarse al reloj más de lo permitido
+        long anterior = generador.siguiente();
+        boolean vuelta = false;
+
+        for (int i = 0; i < SECUENCIAS * 4; i++) {
+            long id = generador.siguiente();
+
+            assertTrue(id > anterior);
+            vuelta |= secuencia(id) < secuencia(anterior);
+            anterior = id;
+        }
+        assertTrue(vuelta, "La secuencia nunca volvió a cero");
+        assertTrue(TransactionIdGenerator.milisegundos(anterior)
+                - System.currentTimeMillis()
+                <= TransactionIdGenerator.MAX_ADELANTO_MS);
+    }
+
+    @Test
+    void relojPorDetrasDelUltimoIdRecuperado() {
+        TransactionIdGenerator generador = new TransactionIdGenerator(NODO);
+        // Id de otro nodo con la secuencia agotada, 300 ms por delante del
+        // reloj: como si el reloj hubiese retrocedido tras un reinicio. El
+        // siguiente pasa al milisegundo posterior con secuencia cero
+        long futuro = id(System.currentTimeMillis() + 300, NODO + 1,
+                SECUENCIAS - 1);
+
+        generador.avanzarHasta(futuro);
+        long primero = generador.siguiente();
+
+        assertTrue(primero > futuro);
+        assertEquals(NODO, TransactionIdGenerator.nodo(primero));
+        assertEquals(TransactionIdGenerator.milisegundos(futuro) + 1,
+                TransactionIdGenerator.milisegundos(primero));
+        assertEquals(0, secuencia(primero));
+        assertTrue(generador.siguiente() > primero);
+
+        // Avanzar hacia atrás no tiene efecto
+        generador.avanzarHasta(id(System.currentTimeMillis() - 1000, NODO, 0));
+        assertTrue(generador.siguiente() > primero);
+    }
+
+    @Test
+    void noSeAdelantaAlRelojMasDelLimite() {
+        TransactionIdGenerator generador = new TransactionIdGenerator(NODO);
+        long futuro = id(System.currentTimeMillis()
+                + TransactionIdGenerator.MAX_ADELANTO_MS + 200, NODO, 0);
+
+        generador.avanzarHasta(futuro);
+        // Espera a que el reloj lo alcance en lugar de adelantarse más
+        long id = generador.siguiente();
+
+        assertTrue(id > futuro);
+        assertTrue(TransactionIdGenerator.milisegundos(id)
+                - System.currentTimeMillis()
+                <= TransactionIdGenerator.MAX_ADELANTO_MS);
+    }
+
+    private static long id(long milisegundos, int nodo, int secuencia) {
+        return ((milisegundos - TransactionIdGenerator.EPOCH)
+                << (TransactionIdGenerator.NODE_BITS
+                        + TransactionIdGenerator.SEQUENCE_BITS))
+                | ((long) nodo << TransactionIdGenerator.SEQUENCE_BITS)
+                | secuencia;
+    }
+
+    private static long secuencia(long id) {
+        return id & (SECUENCIAS - 1);
+    }
+}